@@ -18,6 +18,9 @@ dependencies {
 }
 
 java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(21))
+    }
     sourceSets {
         main {
             java.setSrcDirs(listOf("src/main"))
@@ -29,8 +32,35 @@ java {
     }
 }
 
+val jmh: SourceSet by sourceSets.creating {
+    java.setSrcDirs(listOf("src/jmh"))
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[jmh.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+
+dependencies {
+    jmh.implementationConfigurationName("org.openjdk.jmh:jmh-core:1.37")
+    jmh.annotationProcessorConfigurationName("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
 tasks.compileJava {
-    options.release.set(16)
+    options.release.set(21)
+}
+
+tasks.named<JavaCompile>(jmh.compileJavaTaskName) {
+    options.release.set(21)
+}
+
+// ./gradlew jmh -PjmhArgs="RoundTrip -p arraySize=1000 -t 8"
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs JMH benchmarks with GC and allocation profiling"
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args("-prof", "gc")
+    (project.findProperty("jmhArgs") as String?)?.let { args(it.split(" ")) }
 }
 
 tasks.test {
@@ -7,18 +7,20 @@ if __name__ == '__main__':
     for filename in ["blocking", "asynchronous"]:
         with open('results/' + filename + '/' + sys.argv[1], 'r') as file:
             parameters = []
-            file.readline()
-            parameters.append(file.readline())
-            line = file.readline()
-            _, _, parameter = line.partition(': ')
-            file.readline()
-            for _ in range(2):
-                parameters.append(file.readline())
+            for line in file:
+                if not line.strip():
+                    break
+                key, _, value = line.partition(': ')
+                if key == 'Current testing parameter':
+                    parameter = value
+                elif key != 'Type of server' and not key.startswith('Bounds of '):
+                    parameters.append(line)
 
-            file.readline()
             data[filename] = [[], []]
             for line in file:
-                val, time = line.rsplit()
+                if line.startswith('#'):
+                    continue
+                val, time, *_ = line.split()
                 data[filename][0].append(int(val))
                 data[filename][1].append(int(time))
             plt.plot(data[filename][0], data[filename][1], label=filename)
@@ -0,0 +1,63 @@
+package ru.java.hse.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.java.hse.codec.MessageCodec;
+import ru.java.hse.message.IntArray;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// Кодирование и декодирование одного сообщения через поток и через ByteBuffer
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int arraySize;
+
+    @Param({"protobuf", "raw"})
+    public String codecName;
+
+    private MessageCodec codec;
+    private IntArray array;
+    private byte[] encoded;
+    private ByteArrayOutputStream outputStream;
+
+    @Setup
+    public void setUp() {
+        codec = Payloads.codec(codecName);
+        array = new IntArray(1, Payloads.randomArray(arraySize));
+        ByteBuffer buffer = codec.write(array);
+        encoded = new byte[buffer.remaining()];
+        buffer.get(encoded);
+        outputStream = new ByteArrayOutputStream(encoded.length);
+    }
+
+    @Benchmark
+    public IntArray readStream() throws IOException {
+        return codec.read(new ByteArrayInputStream(encoded));
+    }
+
+    @Benchmark
+    public IntArray readBuffer() throws IOException {
+        return codec.read(ByteBuffer.wrap(encoded, Integer.BYTES, encoded.length - Integer.BYTES));
+    }
+
+    @Benchmark
+    public int writeStream() throws IOException {
+        outputStream.reset();
+        codec.write(outputStream, array);
+        return outputStream.size();
+    }
+
+    @Benchmark
+    public ByteBuffer writeBuffer() {
+        return codec.write(array);
+    }
+}
@@ -0,0 +1,24 @@
+package ru.java.hse.benchmark;
+
+import ru.java.hse.codec.MessageCodec;
+import ru.java.hse.codec.ProtobufCodec;
+import ru.java.hse.codec.RawCodec;
+
+import java.util.Random;
+
+final class Payloads {
+    private Payloads() {
+    }
+
+    static int[] randomArray(int size) {
+        return new Random(42).ints(size).toArray();
+    }
+
+    static MessageCodec codec(String name) {
+        return switch (name) {
+            case "protobuf" -> new ProtobufCodec();
+            case "raw" -> new RawCodec();
+            default -> throw new IllegalArgumentException("Unknown codec " + name);
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package ru.java.hse.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.java.hse.codec.MessageCodec;
+import ru.java.hse.message.IntArray;
+import ru.java.hse.server.*;
+import ru.java.hse.sort.JdkSortEngine;
+import ru.java.hse.worker.FixedWorkerPool;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+// Запрос и ответ через loopback, каждый поток JMH держит своё соединение
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoundTripBenchmark {
+    private static final int PORT = 4321;
+
+    @State(Scope.Benchmark)
+    public static class ServerState {
+        @Param({"blocking", "blocking shared", "asynchronous", "non-blocking", "virtual"})
+        public String serverName;
+
+        @Param({"protobuf", "raw"})
+        public String codecName;
+
+        MessageCodec codec;
+        Server server;
+
+        @Setup
+        public void setUp() throws ServerException {
+            codec = Payloads.codec(codecName);
+            // Быстрая сортировка, чтобы замер показывал накладные расходы архитектуры
+            server = switch (serverName) {
+                case "blocking" -> new BlockingServer(codec, new JdkSortEngine());
+                case "blocking shared" -> new BlockingServer(codec, new JdkSortEngine(), new FixedWorkerPool(),
+                        new ServerOptions(ServerOptions.DEFAULT_MAX_CLIENT_IN_FLIGHT,
+                                ServerOptions.DEFAULT_MAX_IN_FLIGHT, false, 0, ServerOptions.DEFAULT_SPILL_BYTES,
+                                Runtime.getRuntime().availableProcessors()));
+                case "asynchronous" -> new AsynchronousServer(codec, new JdkSortEngine());
+                case "non-blocking" -> new NonBlockingServer(codec, new JdkSortEngine());
+                case "virtual" -> new VirtualThreadServer(codec, new JdkSortEngine());
+                default -> throw new IllegalArgumentException("Unknown server " + serverName);
+            };
+            server.start(PORT);
+        }
+
+        @TearDown
+        public void tearDown() {
+            server.shutdown();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ConnectionState {
+        @Param({"10", "1000", "10000"})
+        public int arraySize;
+
+        Socket socket;
+        InputStream inputStream;
+        OutputStream outputStream;
+        int[] source;
+        int id;
+
+        @Setup
+        public void setUp(ServerState serverState) throws IOException {
+            socket = new Socket("localhost", PORT);
+            socket.setTcpNoDelay(true);
+            inputStream = new BufferedInputStream(socket.getInputStream());
+            outputStream = socket.getOutputStream();
+            source = Payloads.randomArray(arraySize);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            socket.close();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public IntArray roundTrip(ServerState server, ConnectionState connection) throws IOException {
+        return send(server, connection);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public IntArray roundTrip8(ServerState server, ConnectionState connection) throws IOException {
+        return send(server, connection);
+    }
+
+    private static IntArray send(ServerState server, ConnectionState connection) throws IOException {
+        server.codec.write(connection.outputStream, new IntArray(connection.id++, connection.source.clone()));
+        return server.codec.read(connection.inputStream);
+    }
+}
@@ -0,0 +1,48 @@
+package ru.java.hse.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.java.hse.message.IntArray;
+import ru.java.hse.sort.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int arraySize;
+
+    @Param({"bubble", "jdk", "radix", "parallel", "split"})
+    public String engineName;
+
+    private SortEngine engine;
+    private int[] source;
+
+    @Setup
+    public void setUp() {
+        engine = switch (engineName) {
+            case "bubble" -> new BubbleSortEngine();
+            case "jdk" -> new JdkSortEngine();
+            case "radix" -> new RadixSortEngine();
+            case "parallel" -> new ParallelSortEngine();
+            case "split" -> new SplitMergeSortEngine(new JdkSortEngine(), Runtime.getRuntime().availableProcessors());
+            default -> throw new IllegalArgumentException("Unknown sort engine " + engineName);
+        };
+        source = Payloads.randomArray(arraySize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    // Сортировка на месте, поэтому копирование входа входит в замер
+    @Benchmark
+    public IntArray sort() {
+        return IntArray.sort(new IntArray(0, source.clone()), engine);
+    }
+}
@@ -0,0 +1,36 @@
+package ru.java.hse.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.java.hse.Stats;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Запись замера из нескольких потоков одновременно
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsBenchmark {
+    private final Stats stats = new Stats();
+
+    @Benchmark
+    @Threads(1)
+    public void addMeasurement1() {
+        stats.addMeasurement(ThreadLocalRandom.current().nextLong(1_000_000_000L));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void addMeasurement4() {
+        stats.addMeasurement(ThreadLocalRandom.current().nextLong(1_000_000_000L));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void addMeasurementMax() {
+        stats.addMeasurement(ThreadLocalRandom.current().nextLong(1_000_000_000L));
+    }
+}
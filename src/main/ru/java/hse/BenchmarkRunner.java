@@ -0,0 +1,409 @@
+package ru.java.hse;
+
+import org.jetbrains.annotations.NotNull;
+import ru.java.hse.client.LoadMode;
+import ru.java.hse.codec.MessageCodec;
+import ru.java.hse.server.RemoteServer;
+import ru.java.hse.server.Server;
+import ru.java.hse.server.Stage;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Прогоняет все сочетания настроек из файла свойств и аргументов --key=value (список ключей и значения
+// по умолчанию - в DEFAULTS) и пишет результаты в <output>.csv и <output>.json. Списки перечисляются через
+// запятую, числовые можно задать и диапазоном lower:upper:step. Каждая точка меряется repetitions раз после
+// warmup отброшенных запусков, каждый раз на новом сервере; серия повторяется (не больше maxReruns раз),
+// пока 95% доверительный интервал среднего шире maxRelativeError от него.
+// При mode=split сервер (ServerLauncher) и генератор нагрузки работают в разных JVM, которые можно закрепить
+// за ядрами serverCpus/clientCpus через taskset (например, 0-1) и ограничить по памяти serverHeap/clientHeap
+public class BenchmarkRunner {
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("servers", "blocking,asynchronous"),
+            Map.entry("codecs", "protobuf"),
+            Map.entry("sorts", "bubble"),
+            // fixed, fork join, pinned или inline
+            Map.entry("pools", "fixed"),
+            // Число воркеров, 0 - по числу ядер
+            Map.entry("workerThreads", "0"),
+            // Сколько потоков сортируют один массив (0 - один воркер) и с какого размера (0 - по умолчанию)
+            Map.entry("sortParallelism", "0"),
+            Map.entry("splitThresholds", "0"),
+            // Объём кэша отсортированных массивов в килобайтах, 0 - без кэша
+            Map.entry("cacheSizes", "0"),
+            // Число элементов в куске ответа, 0 - ответ целиком
+            Map.entry("chunkSizes", "0"),
+            Map.entry("loads", "closed"),
+            Map.entry("requests", "100"),
+            Map.entry("arraySizes", "1000"),
+            Map.entry("clients", "10"),
+            Map.entry("deltas", "10"),
+            // Наибольшее число запросов клиента без ответа, 0 - без ограничения
+            Map.entry("pipelineDepths", "0"),
+            // Процент запросов, повторяющих уже отправленный массив
+            Map.entry("replayPercents", "0"),
+            // threads (поток на клиента) или event loop (для тысяч клиентов)
+            Map.entry("loadGenerator", "threads"),
+            Map.entry("warmup", "1"),
+            Map.entry("repetitions", "3"),
+            Map.entry("maxRelativeError", "0.05"),
+            Map.entry("maxReruns", "3"),
+            Map.entry("output", "results/benchmark"),
+            // local, split или generator (генератор нагрузки для уже запущенного ServerLauncher)
+            Map.entry("mode", "local"),
+            Map.entry("controlPort", String.valueOf(Constants.CONTROL_PORT)),
+            Map.entry("serverCpus", ""),
+            Map.entry("clientCpus", ""),
+            Map.entry("serverHeap", ""),
+            Map.entry("clientHeap", "")
+    );
+
+    private final Properties settings;
+    private final List<Result> results = new ArrayList<>();
+
+    public BenchmarkRunner(Properties settings) {
+        this.settings = settings;
+    }
+
+    public static @NotNull Properties parseArguments(String[] args) throws IOException {
+        Properties properties = new Properties();
+        DEFAULTS.forEach(properties::setProperty);
+        for (String arg : args) {
+            if (arg.startsWith("--config=")) {
+                load(properties, arg.substring("--config=".length()));
+            } else if (!arg.startsWith("--")) {
+                load(properties, arg);
+            }
+        }
+        // Аргументы командной строки важнее файла
+        for (String arg : args) {
+            if (arg.startsWith("--") && !arg.startsWith("--config=")) {
+                String[] keyValue = arg.substring(2).split("=", 2);
+                if (keyValue.length != 2) {
+                    throw new IllegalArgumentException("Expected --key=value, got " + arg);
+                }
+                properties.setProperty(keyValue[0], keyValue[1]);
+            }
+        }
+        return properties;
+    }
+
+    private static void load(Properties properties, String path) throws IOException {
+        try (Reader reader = new FileReader(path)) {
+            properties.load(reader);
+        }
+    }
+
+    public void run() throws IOException {
+        String mode = settings.getProperty("mode").trim();
+        if (mode.equals("split")) {
+            runSplit();
+            return;
+        }
+        boolean generator = mode.equals("generator");
+        if (!generator && !mode.equals("local")) {
+            throw new IllegalArgumentException("Unknown mode " + mode);
+        }
+        int controlPort = Integer.parseInt(settings.getProperty("controlPort").trim());
+
+        List<ServerConfig> configs = parseConfigs();
+        List<LoadMode> loads = parseList("loads", LoadMode::parseInput);
+        List<Integer> arraySizes = parseNumbers("arraySizes");
+        List<Integer> clients = parseNumbers("clients");
+        List<Integer> deltas = parseNumbers("deltas");
+        List<Integer> pipelineDepths = parseNumbers("pipelineDepths");
+        List<Integer> replayPercents = parseNumbers("replayPercents");
+        Main.GeneratorType generatorType = parseList("loadGenerator", Main.GeneratorType::parseInput).get(0);
+        int countRequests = Integer.parseInt(settings.getProperty("requests").trim());
+        Main.Repetitions repetitions = new Main.Repetitions(
+                Integer.parseInt(settings.getProperty("warmup").trim()),
+                Integer.parseInt(settings.getProperty("repetitions").trim()),
+                Double.parseDouble(settings.getProperty("maxRelativeError").trim()),
+                Integer.parseInt(settings.getProperty("maxReruns").trim()));
+        String startTime = Instant.now().toString();
+
+        // Процесс сервера завершаем, даже если замер упал
+        try {
+            for (ServerConfig config : configs) {
+                MessageCodec codec = config.codec().getCodec();
+                Supplier<Server> serverFactory = generator
+                        ? () -> config.getRemoteServer(controlPort)
+                        : () -> config.getServer(codec);
+                for (LoadMode loadMode : loads) {
+                    for (int arraySize : arraySizes) {
+                        for (int numberOfClients : clients) {
+                            for (int timeDelta : deltas) {
+                                for (int pipelineDepth : pipelineDepths) {
+                                    for (int replayPercent : replayPercents) {
+                                        Main.Point point = Main.measurePoint(serverFactory, countRequests, arraySize,
+                                                numberOfClients, timeDelta, pipelineDepth, replayPercent, loadMode,
+                                                generatorType, codec, repetitions);
+                                        Result result = new Result(config, loadMode.toString(), arraySize,
+                                                numberOfClients, timeDelta, pipelineDepth, replayPercent, point);
+                                        results.add(result);
+                                        System.out.println(result.describe());
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            if (generator) {
+                RemoteServer.quit(controlPort);
+            }
+        }
+
+        String output = settings.getProperty("output").trim();
+        try (PrintStream csv = new PrintStream(output + ".csv")) {
+            writeCsv(csv);
+        }
+        try (PrintStream json = new PrintStream(output + ".json")) {
+            writeJson(json, startTime, countRequests);
+        }
+        System.out.println("Results are written to " + output + ".csv and " + output + ".json");
+    }
+
+    // Все сочетания настроек сервера
+    private @NotNull List<ServerConfig> parseConfigs() {
+        List<Main.ServerType> servers = parseList("servers", Main.ServerType::parseInput);
+        List<Main.CodecType> codecs = parseList("codecs", Main.CodecType::parseInput);
+        List<Main.SortType> sorts = parseList("sorts", Main.SortType::parseInput);
+        List<Main.PoolType> pools = parseList("pools", Main.PoolType::parseInput);
+        List<Integer> workerThreads = parseNumbers("workerThreads");
+        List<Integer> sortParallelisms = parseNumbers("sortParallelism");
+        List<Integer> splitThresholds = parseNumbers("splitThresholds");
+        List<Integer> cacheSizes = parseNumbers("cacheSizes");
+        List<Integer> chunkSizes = parseNumbers("chunkSizes");
+        List<ServerConfig> configs = new ArrayList<>();
+        for (Main.ServerType serverType : servers) {
+            for (Main.CodecType codecType : codecs) {
+                for (Main.SortType sortType : sorts) {
+                    for (Main.PoolType poolType : pools) {
+                        for (int workers : workerThreads) {
+                            for (int parallelism : sortParallelisms) {
+                                for (int threshold : splitThresholds) {
+                                    for (int cacheSize : cacheSizes) {
+                                        for (int chunkSize : chunkSizes) {
+                                            configs.add(new ServerConfig(serverType, codecType, sortType, poolType,
+                                                    workers, parallelism, threshold, cacheSize, chunkSize));
+                                        }
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return configs;
+    }
+
+    // Запускает сервер и генератор нагрузки в отдельных процессах и ждёт их завершения
+    private void runSplit() throws IOException {
+        String controlPort = settings.getProperty("controlPort").trim();
+        List<String> generatorArguments = new ArrayList<>();
+        new TreeMap<>(settings).forEach((key, value) -> generatorArguments.add("--" + key + "=" + value));
+        generatorArguments.add("--mode=generator");
+
+        Process server = new ProcessBuilder(javaCommand("serverCpus", "serverHeap", ServerLauncher.class.getName(),
+                List.of("--controlPort=" + controlPort))).inheritIO().start();
+        try {
+            Process generator = new ProcessBuilder(javaCommand("clientCpus", "clientHeap", Main.class.getName(),
+                    generatorArguments)).inheritIO().start();
+            if (generator.waitFor() != 0) {
+                throw new IOException("Load generator exited with code " + generator.exitValue());
+            }
+            if (!server.waitFor(1, TimeUnit.MINUTES)) {
+                throw new IOException("Server process did not stop");
+            }
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } finally {
+            server.destroy();
+        }
+    }
+
+    private @NotNull List<String> javaCommand(String cpusKey, String heapKey, String mainClass, List<String> arguments) {
+        List<String> command = new ArrayList<>();
+        String cpus = settings.getProperty(cpusKey).trim();
+        if (!cpus.isEmpty()) {
+            command.addAll(List.of("taskset", "-c", cpus));
+        }
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        String heap = settings.getProperty(heapKey).trim();
+        if (!heap.isEmpty()) {
+            command.add("-Xms" + heap);
+            command.add("-Xmx" + heap);
+        }
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), mainClass));
+        command.addAll(arguments);
+        return command;
+    }
+
+    private <T> @NotNull List<T> parseList(String key, Function<String, T> parser) {
+        List<T> values = new ArrayList<>();
+        for (String item : settings.getProperty(key).split(",")) {
+            T value = parser.apply(item.trim());
+            if (value == null) {
+                throw new IllegalArgumentException("Unknown value '" + item.trim() + "' of " + key);
+            }
+            values.add(value);
+        }
+        return values;
+    }
+
+    private @NotNull List<Integer> parseNumbers(String key) {
+        List<Integer> values = new ArrayList<>();
+        for (String item : settings.getProperty(key).split(",")) {
+            String[] range = item.trim().split(":");
+            if (range.length == 1) {
+                values.add(Integer.parseInt(range[0]));
+            } else if (range.length == 3) {
+                new Main.Bounds(Integer.parseInt(range[0]), Integer.parseInt(range[1]), Integer.parseInt(range[2]))
+                        .forEach(values::add);
+            } else {
+                throw new IllegalArgumentException("Wrong value '" + item.trim() + "' of " + key);
+            }
+        }
+        return values;
+    }
+
+    private void writeCsv(PrintStream out) {
+        out.println("server,codec,sort,pool,workers,sortParallelism,splitThreshold,cacheKilobytes,chunkSize,load," +
+                "arraySize,clients,delta,pipelineDepth,replayPercent,runs,attempts," +
+                "run_mean_us,run_stddev_us,run_ci95_us,run_relative_error,count," +
+                "mean_us,p50_us,p90_us,p99_us,p999_us,max_us," +
+                "client_mean_us,client_p50_us,client_p90_us,client_p99_us,client_p999_us,client_max_us," +
+                "first_chunk_mean_us,first_chunk_p50_us,first_chunk_p90_us,first_chunk_p99_us,first_chunk_p999_us," +
+                "first_chunk_max_us," +
+                STAGES_HEADER + ",counters");
+        for (Result result : results) {
+            StringJoiner counters = new StringJoiner(";");
+            result.point().counters().forEach((name, value) -> counters.add(name + "=" + value));
+            Summary summary = result.point().summary();
+            Histogram server = result.point().server();
+            ServerConfig config = result.config();
+            out.println(String.join(",", config.server().toString(), config.codec().toString(),
+                    config.sort().toString(), config.pool().toString(), String.valueOf(config.workers()),
+                    String.valueOf(config.sortParallelism()), String.valueOf(config.splitThreshold()),
+                    String.valueOf(config.cacheKilobytes()), String.valueOf(config.chunkSize()), result.load(),
+                    String.valueOf(result.arraySize()), String.valueOf(result.clients()), String.valueOf(result.delta()),
+                    String.valueOf(result.pipelineDepth()), String.valueOf(result.replayPercent()),
+                    String.valueOf(summary.count()),
+                    String.valueOf(result.point().attempts()),
+                    String.format(Locale.ROOT, "%.1f,%.1f,%.1f,%.4f", summary.mean(), summary.stddev(), summary.ci95(),
+                            summary.relativeError()),
+                    String.valueOf(server.getTotalCount()), csvHistogram(server), csvHistogram(result.point().client()),
+                    csvHistogram(result.point().firstChunk()),
+                    csvStages(result.point().stages()), counters.toString()));
+        }
+    }
+
+    // Для каждого этапа среднее и 99-й перцентиль, у серверов без разбивки на этапы нули
+    private static final String STAGES_HEADER = String.join(",", Arrays.stream(Stage.values())
+            .map(stage -> stage + "_mean_us," + stage + "_p99_us")
+            .toList());
+
+    private static String csvStages(Map<Stage, Histogram> stages) {
+        StringJoiner joiner = new StringJoiner(",");
+        stages.forEach((stage, histogram) -> joiner.add(String.format(Locale.ROOT, "%.1f,%d", histogram.getMean(),
+                histogram.getValueAtPercentile(99))));
+        return joiner.toString();
+    }
+
+    private static String csvHistogram(Histogram histogram) {
+        return String.join(",", String.format(Locale.ROOT, "%.1f", histogram.getMean()),
+                String.valueOf(histogram.getValueAtPercentile(50)),
+                String.valueOf(histogram.getValueAtPercentile(90)),
+                String.valueOf(histogram.getValueAtPercentile(99)),
+                String.valueOf(histogram.getValueAtPercentile(99.9)),
+                String.valueOf(histogram.getMax()));
+    }
+
+    private void writeJson(PrintStream out, String startTime, int countRequests) {
+        Runtime runtime = Runtime.getRuntime();
+        out.println("{");
+        out.println("  \"metadata\": {");
+        out.println("    \"start\": " + quote(startTime) + ",");
+        out.println("    \"javaVersion\": " + quote(System.getProperty("java.version")) + ",");
+        out.println("    \"jvm\": " + quote(System.getProperty("java.vm.name") + " " + System.getProperty("java.vm.version")) + ",");
+        out.println("    \"os\": " + quote(System.getProperty("os.name") + " " + System.getProperty("os.arch")) + ",");
+        out.println("    \"cores\": " + runtime.availableProcessors() + ",");
+        out.println("    \"maxHeap\": " + runtime.maxMemory() + ",");
+        out.println("    \"requests\": " + countRequests + ",");
+        StringJoiner settingsJson = new StringJoiner(", ", "{", "}");
+        new TreeMap<>(settings).forEach((key, value) -> settingsJson.add(quote(key.toString()) + ": " + quote(value.toString())));
+        out.println("    \"settings\": " + settingsJson);
+        out.println("  },");
+        out.println("  \"results\": [");
+        for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            StringJoiner counters = new StringJoiner(", ", "{", "}");
+            result.point().counters().forEach((name, value) -> counters.add(quote(name) + ": " + value));
+            Summary summary = result.point().summary();
+            StringJoiner stages = new StringJoiner(", ", "{", "}");
+            result.point().stages().forEach((stage, histogram) ->
+                    stages.add(quote(stage.toString()) + ": " + jsonHistogram(histogram)));
+            StringJoiner runs = new StringJoiner(", ", "[", "]");
+            result.point().measurements().forEach(measurement ->
+                    runs.add(String.format(Locale.ROOT, "%.1f", measurement.server().getMean())));
+            ServerConfig config = result.config();
+            out.println("    {\"server\": " + quote(config.server().toString()) +
+                    ", \"codec\": " + quote(config.codec().toString()) +
+                    ", \"sort\": " + quote(config.sort().toString()) +
+                    ", \"pool\": " + quote(config.pool().toString()) +
+                    ", \"workers\": " + config.workers() + ", \"sortParallelism\": " + config.sortParallelism() +
+                    ", \"splitThreshold\": " + config.splitThreshold() +
+                    ", \"cacheKilobytes\": " + config.cacheKilobytes() + ", \"chunkSize\": " + config.chunkSize() +
+                    ", \"load\": " + quote(result.load()) +
+                    ", \"arraySize\": " + result.arraySize() + ", \"clients\": " + result.clients() +
+                    ", \"delta\": " + result.delta() + ", \"pipelineDepth\": " + result.pipelineDepth() +
+                    ", \"replayPercent\": " + result.replayPercent() +
+                    ", \"attempts\": " + result.point().attempts() +
+                    ", \"run_means_us\": " + runs +
+                    String.format(Locale.ROOT,
+                            ", \"summary_us\": {\"runs\": %d, \"mean\": %.1f, \"stddev\": %.1f, \"ci95\": %.1f}",
+                            summary.count(), summary.mean(), summary.stddev(), summary.ci95()) +
+                    ", \"server_us\": " + jsonHistogram(result.point().server()) +
+                    ", \"client_us\": " + jsonHistogram(result.point().client()) +
+                    ", \"first_chunk_us\": " + jsonHistogram(result.point().firstChunk()) +
+                    ", \"stages_us\": " + stages +
+                    ", \"counters\": " + counters + "}" + (i + 1 < results.size() ? "," : ""));
+        }
+        out.println("  ]");
+        out.println("}");
+    }
+
+    private static String jsonHistogram(Histogram histogram) {
+        return String.format(Locale.ROOT,
+                "{\"count\": %d, \"mean\": %.1f, \"p50\": %d, \"p90\": %d, \"p99\": %d, \"p999\": %d, \"max\": %d}",
+                histogram.getTotalCount(), histogram.getMean(), histogram.getValueAtPercentile(50),
+                histogram.getValueAtPercentile(90), histogram.getValueAtPercentile(99),
+                histogram.getValueAtPercentile(99.9), histogram.getMax());
+    }
+
+    private static String quote(String s) {
+        return '"' + s.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    private record Result(ServerConfig config, String load, int arraySize, int clients, int delta, int pipelineDepth,
+                          int replayPercent, Main.Point point) {
+        String describe() {
+            Summary summary = point.summary();
+            return config + " " + load + " size=" + arraySize + " clients=" + clients +
+                    " delta=" + delta + " depth=" + pipelineDepth + " replay=" + replayPercent + "%: mean=" + (long) summary.mean() + " +- " + (long) summary.ci95() + "us over " +
+                    summary.count() + " runs (attempt " + point.attempts() + ") p99=" +
+                    point.server().getValueAtPercentile(99) + "us";
+        }
+    }
+}
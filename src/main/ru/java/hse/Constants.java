@@ -2,4 +2,8 @@ package ru.java.hse;
 
 public class Constants {
     public final static int PORT = 1234;
+    public final static int CONTROL_PORT = 1235;
+    // Очередь ещё не принятых соединений, чтобы тысячи клиентов могли подключиться одновременно,
+    // ядро всё равно ограничит её значением somaxconn
+    public final static int BACKLOG = 4096;
 }
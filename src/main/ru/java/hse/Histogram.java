@@ -0,0 +1,150 @@
+package ru.java.hse;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Гистограмма неотрицательных значений без блокировок с логарифмическими корзинами, как в HdrHistogram.
+// Значения меньше 2^SUB_BUCKET_BITS хранятся точно, у больших остаётся SUB_BUCKET_BITS - 1 значащих бит,
+// поэтому относительная ошибка меньше 2%. Значения больше MAX_VALUE обрезаются
+public class Histogram {
+    public static final long MAX_VALUE = (1L << 40) - 1;
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int COUNTS_LENGTH = indexOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(COUNTS_LENGTH);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void recordValue(long value) {
+        value = Math.min(Math.max(value, 0), MAX_VALUE);
+        counts.incrementAndGet(indexOf(value));
+        totalCount.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public void add(Histogram other) {
+        for (int i = 0; i < COUNTS_LENGTH; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        totalCount.add(other.totalCount.sum());
+        sum.add(other.sum.sum());
+        max.accumulate(other.max.get());
+    }
+
+    public Histogram copy() {
+        Histogram histogram = new Histogram();
+        histogram.add(this);
+        return histogram;
+    }
+
+    public void reset() {
+        for (int i = 0; i < COUNTS_LENGTH; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    public long getTotalCount() {
+        return totalCount.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = totalCount.sum();
+        if (count == 0) {
+            return 0;
+        }
+        return (double) sum.sum() / count;
+    }
+
+    // Наибольшее значение, неотличимое от записанного на данном перцентиле (от 0 до 100)
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[COUNTS_LENGTH];
+        for (int i = 0; i < COUNTS_LENGTH; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < COUNTS_LENGTH; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    // Пишет только непустые корзины, чтобы гистограмму можно было передать другому процессу
+    public void writeTo(DataOutput output) throws IOException {
+        long[] snapshot = new long[COUNTS_LENGTH];
+        int nonEmpty = 0;
+        for (int i = 0; i < COUNTS_LENGTH; i++) {
+            snapshot[i] = counts.get(i);
+            if (snapshot[i] != 0) {
+                nonEmpty++;
+            }
+        }
+        output.writeLong(sum.sum());
+        output.writeLong(max.get());
+        output.writeInt(nonEmpty);
+        for (int i = 0; i < COUNTS_LENGTH; i++) {
+            if (snapshot[i] != 0) {
+                output.writeInt(i);
+                output.writeLong(snapshot[i]);
+            }
+        }
+    }
+
+    public static Histogram readFrom(DataInput input) throws IOException {
+        Histogram histogram = new Histogram();
+        histogram.sum.add(input.readLong());
+        histogram.max.accumulate(input.readLong());
+        int nonEmpty = input.readInt();
+        for (int i = 0; i < nonEmpty; i++) {
+            int index = input.readInt();
+            long count = input.readLong();
+            if (index < 0 || index >= COUNTS_LENGTH) {
+                throw new IOException("Wrong histogram bucket " + index);
+            }
+            histogram.counts.addAndGet(index, count);
+            histogram.totalCount.add(count);
+        }
+        return histogram;
+    }
+
+    private static int indexOf(long value) {
+        int bucket = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1));
+        int subBucket = (int) (value >>> bucket);
+        return bucket * SUB_BUCKET_HALF_COUNT + subBucket;
+    }
+
+    private static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int bucket = index / SUB_BUCKET_HALF_COUNT - 1;
+        long subBucket = index - (long) bucket * SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << bucket) - 1;
+    }
+}
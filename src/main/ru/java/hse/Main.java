@@ -1,36 +1,88 @@
 package ru.java.hse;
 
 import org.jetbrains.annotations.NotNull;
+import ru.java.hse.client.ArraySource;
 import ru.java.hse.client.Client;
+import ru.java.hse.client.EventLoopGenerator;
+import ru.java.hse.client.LoadMode;
+import ru.java.hse.codec.MessageCodec;
+import ru.java.hse.codec.ProtobufCodec;
+import ru.java.hse.codec.RawCodec;
 import ru.java.hse.server.AsynchronousServer;
 import ru.java.hse.server.BlockingServer;
+import ru.java.hse.server.NonBlockingServer;
 import ru.java.hse.server.Server;
 import ru.java.hse.server.ServerException;
+import ru.java.hse.server.ServerOptions;
+import ru.java.hse.server.Stage;
+import ru.java.hse.server.VirtualThreadServer;
+import ru.java.hse.sort.*;
+import ru.java.hse.worker.*;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class Main {
     public static void main(String[] args) {
+        // С аргументами запускаем всю матрицу без вопросов, иначе спрашиваем параметры
+        if (args.length > 0) {
+            try {
+                new BenchmarkRunner(BenchmarkRunner.parseArguments(args)).run();
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
         StringBuilder sb = new StringBuilder();
 
         // Enter the server architecture
         ServerType serverType = getServerType(scanner);
-        Server server = serverType.getServer();
         sb.append("Type of server: ").append(serverType).append(System.lineSeparator());
 
+        // Enter the message format
+        CodecType codecType = getCodecType(scanner);
+        MessageCodec codec = codecType.getCodec();
+        sb.append("Message codec: ").append(codecType).append(System.lineSeparator());
+
+        // Enter the sort engine used by the server
+        SortType sortType = getSortType(scanner);
+        sb.append("Sort engine: ").append(sortType).append(System.lineSeparator());
+
+        // Enter the pool that runs the sorting
+        PoolType poolType = getPoolType(scanner);
+        sb.append("Worker pool: ").append(poolType).append(System.lineSeparator());
+
         // Enter the number of requests from each client
         int countRequests = getPositiveNumber(scanner, "number of requests from each client");
         sb.append("Number of requests from each client: ").append(countRequests).append(System.lineSeparator());
 
+        // Enter the load mode of clients
+        LoadMode loadMode = getLoadMode(scanner);
+        sb.append("Load mode: ").append(loadMode).append(System.lineSeparator());
+
+        // Enter how the clients are simulated
+        GeneratorType generatorType = getGeneratorType(scanner);
+        sb.append("Load generator: ").append(generatorType).append(System.lineSeparator());
+
+        // Enter the number of discarded and measured runs for every point
+        int warmup = getPositiveNumber(scanner, "number of warmup runs");
+        int count = Math.max(1, getPositiveNumber(scanner, "number of measured runs"));
+        Repetitions repetitions = new Repetitions(warmup, count, Repetitions.DEFAULT_MAX_RELATIVE_ERROR,
+                Repetitions.DEFAULT_MAX_RERUNS);
+        sb.append("Repetitions: ").append(repetitions).append(System.lineSeparator());
+
         // Enter the parameter that will be changed
         Parameter parameter = getParameter(scanner);
         sb.append("Current testing parameter: ").append(parameter).append(System.lineSeparator());
@@ -42,7 +94,8 @@ public class Main {
         // Where to write
         PrintStream out = getPrintStream(scanner);
 
-        int arraySize = 0, numberOfClients = 0, timeDelta = 0;
+        int arraySize = 0, numberOfClients = 0, timeDelta = 0, pipelineDepth = 0, workers = 0;
+        int sortParallelism = 0, splitThreshold = 0, cacheKilobytes = 0, replayPercent = 0, chunkSize = 0;
         for (Parameter par : Parameter.values()) {
             if (par == parameter) {
                 continue;
@@ -52,19 +105,47 @@ public class Main {
                 case ARRAY_SIZE -> arraySize = value;
                 case NUMBER_OF_CLIENTS -> numberOfClients = value;
                 case TIME_BETWEEN_REQUESTS -> timeDelta = value;
+                case PIPELINE_DEPTH -> pipelineDepth = value;
+                case WORKERS -> workers = value;
+                case SORT_PARALLELISM -> sortParallelism = value;
+                case SPLIT_THRESHOLD -> splitThreshold = value;
+                case CACHE_SIZE -> cacheKilobytes = value;
+                case REPLAY_PERCENT -> replayPercent = value;
+                case CHUNK_SIZE -> chunkSize = value;
             }
             sb.append(par).append(": ").append(value).append(System.lineSeparator());
         }
         sb.append('\n');
+        sb.append(HISTOGRAM_HEADER).append(System.lineSeparator());
+        System.out.println(HISTOGRAM_HEADER);
         for (int i : bounds) {
             switch (parameter) {
                 case ARRAY_SIZE -> arraySize = i;
                 case NUMBER_OF_CLIENTS -> numberOfClients = i;
                 case TIME_BETWEEN_REQUESTS -> timeDelta = i;
+                case PIPELINE_DEPTH -> pipelineDepth = i;
+                case WORKERS -> workers = i;
+                case SORT_PARALLELISM -> sortParallelism = i;
+                case SPLIT_THRESHOLD -> splitThreshold = i;
+                case CACHE_SIZE -> cacheKilobytes = i;
+                case REPLAY_PERCENT -> replayPercent = i;
+                case CHUNK_SIZE -> chunkSize = i;
             }
-            long time = testServer(server, countRequests, arraySize, numberOfClients, timeDelta);
-            sb.append(i).append(' ').append(time).append(System.lineSeparator());
-            System.out.println(i + " " + time);
+            int poolSize = workers, parallelism = sortParallelism, threshold = splitThreshold, cache = cacheKilobytes;
+            int chunk = chunkSize;
+            Supplier<Server> serverFactory = () -> serverType.getServer(codec,
+                    sortType.getEngine(parallelism, threshold, cache), poolType.getPool(poolSize), chunk);
+            Point point = measurePoint(serverFactory, countRequests, arraySize, numberOfClients, timeDelta,
+                    pipelineDepth, replayPercent, loadMode, generatorType, codec, repetitions);
+            Summary summary = point.summary();
+            String line = i + " " + formatHistogram(point.server()) + " " + formatHistogram(point.client())
+                    + " " + formatHistogram(point.firstChunk())
+                    + String.format(Locale.ROOT, " %.1f %.1f %.1f %d", summary.mean(), summary.stddev(), summary.ci95(),
+                    point.attempts())
+                    + formatStages(point.stages())
+                    + formatCounters(point.counters());
+            sb.append(line).append(System.lineSeparator());
+            System.out.println(line);
         }
         out.print(sb);
     }
@@ -150,6 +231,91 @@ public class Main {
         }
     }
 
+    private static @NotNull CodecType getCodecType(@NotNull Scanner scanner) {
+        while (true) {
+            System.out.print("Select the message codec: ");
+            System.out.println(String.join(", ", Arrays.stream(CodecType.values())
+                    .map(Enum::toString)
+                    .toList()));
+            System.out.print(">> ");
+            String input = scanner.nextLine();
+            CodecType type = CodecType.parseInput(input);
+            if (type == null) {
+                System.out.println("There is no such codec");
+                continue;
+            }
+            return type;
+        }
+    }
+
+    private static @NotNull SortType getSortType(@NotNull Scanner scanner) {
+        while (true) {
+            System.out.print("Select the sort engine: ");
+            System.out.println(String.join(", ", Arrays.stream(SortType.values())
+                    .map(Enum::toString)
+                    .toList()));
+            System.out.print(">> ");
+            String input = scanner.nextLine();
+            SortType type = SortType.parseInput(input);
+            if (type == null) {
+                System.out.println("There is no such sort engine");
+                continue;
+            }
+            return type;
+        }
+    }
+
+    private static @NotNull PoolType getPoolType(@NotNull Scanner scanner) {
+        while (true) {
+            System.out.print("Select the worker pool: ");
+            System.out.println(String.join(", ", Arrays.stream(PoolType.values())
+                    .map(Enum::toString)
+                    .toList()));
+            System.out.print(">> ");
+            String input = scanner.nextLine();
+            PoolType type = PoolType.parseInput(input);
+            if (type == null) {
+                System.out.println("There is no such worker pool");
+                continue;
+            }
+            return type;
+        }
+    }
+
+    private static @NotNull GeneratorType getGeneratorType(@NotNull Scanner scanner) {
+        while (true) {
+            System.out.print("Select the load generator: ");
+            System.out.println(String.join(", ", Arrays.stream(GeneratorType.values())
+                    .map(Enum::toString)
+                    .toList()));
+            System.out.print(">> ");
+            String input = scanner.nextLine();
+            GeneratorType type = GeneratorType.parseInput(input);
+            if (type == null) {
+                System.out.println("There is no such load generator");
+                continue;
+            }
+            return type;
+        }
+    }
+
+    private static @NotNull LoadMode getLoadMode(@NotNull Scanner scanner) {
+        while (true) {
+            System.out.print("Select the load mode: ");
+            System.out.println(String.join(", ", Arrays.stream(LoadMode.values())
+                    .map(Enum::toString)
+                    .toList()));
+            System.out.print(">> ");
+            String input = scanner.nextLine();
+            LoadMode mode = LoadMode.parseInput(input);
+            if (mode == null) {
+                System.out.println("There is no such load mode");
+                continue;
+            }
+            return mode;
+        }
+    }
+
     private static @NotNull ServerType getServerType(@NotNull Scanner scanner) {
         while (true) {
             System.out.print("Select the type of server: ");
@@ -167,33 +333,109 @@ public class Main {
         }
     }
 
-    private static long testServer(Server server, int countRequests, int arraySize, int numberOfClients, int timeDelta) {
+    // Среднее в миллисекундах (как в старых результатах), перцентили и максимум в микросекундах.
+    // Сначала время на сервере, затем задержка на клиенте от запланированного момента отправки
+    // Гистограммы объединяются по всем измеренным запускам, после них среднее по запускам, отклонение,
+    // полуширина 95% доверительного интервала и число попыток измерить точку.
+    // В конце строки средние времена этапов обработки (если сервер их замеряет) и счётчики архитектуры
+    private static final String HISTOGRAM_HEADER = "# value average(ms) p50(us) p90(us) p99(us) p99.9(us) max(us)"
+            + " client: average(ms) p50(us) p90(us) p99(us) p99.9(us) max(us)"
+            + " first chunk: average(ms) p50(us) p90(us) p99(us) p99.9(us) max(us)"
+            + " runs: mean(us) stddev(us) ci95(us) attempts";
+
+    private static @NotNull String formatHistogram(@NotNull Histogram histogram) {
+        return (long) histogram.getMean() / 1000 + " " +
+                histogram.getValueAtPercentile(50) + " " +
+                histogram.getValueAtPercentile(90) + " " +
+                histogram.getValueAtPercentile(99) + " " +
+                histogram.getValueAtPercentile(99.9) + " " +
+                histogram.getMax();
+    }
+
+    private static @NotNull String formatStages(@NotNull Map<Stage, Histogram> stages) {
+        StringBuilder sb = new StringBuilder();
+        stages.forEach((stage, histogram) -> {
+            if (histogram.getTotalCount() > 0) {
+                sb.append(' ').append(stage).append('=')
+                        .append(String.format(Locale.ROOT, "%.1f", histogram.getMean())).append("us");
+            }
+        });
+        return sb.toString();
+    }
+
+    private static @NotNull String formatCounters(@NotNull Map<String, Number> counters) {
+        StringBuilder sb = new StringBuilder();
+        counters.forEach((name, value) -> sb.append(' ').append(name).append('=').append(value));
+        return sb.toString();
+    }
+
+    // Прогревочные запуски отбрасываются, точка перемеряется, если доверительный интервал слишком широкий
+    static Point measurePoint(Supplier<Server> serverFactory, int countRequests, int arraySize, int numberOfClients,
+                              int timeDelta, int pipelineDepth, int replayPercent, LoadMode loadMode,
+                              GeneratorType generatorType, MessageCodec codec, Repetitions repetitions) {
+        for (int i = 0; i < repetitions.warmup(); i++) {
+            testServer(serverFactory.get(), countRequests, arraySize, numberOfClients, timeDelta, pipelineDepth,
+                    replayPercent, loadMode, generatorType, codec);
+        }
+        Point point = null;
+        for (int attempt = 1; attempt <= repetitions.maxReruns() + 1; attempt++) {
+            List<Measurement> measurements = new ArrayList<>();
+            for (int i = 0; i < repetitions.count(); i++) {
+                measurements.add(testServer(serverFactory.get(), countRequests, arraySize, numberOfClients, timeDelta,
+                        pipelineDepth, replayPercent, loadMode, generatorType, codec));
+            }
+            point = new Point(measurements, attempt);
+            if (repetitions.count() < 2 || point.summary().relativeError() <= repetitions.maxRelativeError()) {
+                break;
+            }
+        }
+        return point;
+    }
+
+    // Каждый запуск получает новый сервер, чтобы закрытие клиентов прошлого запуска не задело статистику
+    static Measurement testServer(Server server, int countRequests, int arraySize, int numberOfClients,
+                                  int timeDelta, int pipelineDepth, int replayPercent, LoadMode loadMode,
+                                  GeneratorType generatorType, MessageCodec codec) {
         ExecutorService threadPool = Executors.newCachedThreadPool();
+        Histogram clientLatencies = new Histogram();
+        Histogram firstChunkLatencies = new Histogram();
+        // Общий для всех клиентов запуска, чтобы повторялись и чужие массивы
+        ArraySource arraySource = new ArraySource(arraySize, replayPercent);
         try {
             server.start(Constants.PORT);
-            List<Future<Void>> futures = threadPool.invokeAll(
-                    Stream.generate(() -> new Client(Constants.PORT, arraySize, timeDelta, countRequests))
-                            .limit(numberOfClients)
-                            .collect(Collectors.toList()));
-            for (Future<Void> future : futures) {
-                future.get();
-            }
-        } catch (InterruptedException | ServerException | ExecutionException e) {
+            if (generatorType == GeneratorType.EVENT_LOOP) {
+                new EventLoopGenerator(Constants.PORT, arraySize, timeDelta, countRequests, loadMode, clientLatencies,
+                        firstChunkLatencies, codec, pipelineDepth, EventLoopGenerator.DEFAULT_EVENT_LOOPS, arraySource)
+                        .run(numberOfClients);
+            } else {
+                List<Future<Void>> futures = threadPool.invokeAll(
+                        Stream.generate(() -> new Client(Constants.PORT, arraySize, timeDelta, countRequests,
+                                        loadMode, clientLatencies, firstChunkLatencies, codec, pipelineDepth,
+                                        arraySource))
+                                .limit(numberOfClients)
+                                .collect(Collectors.toList()));
+                for (Future<Void> future : futures) {
+                    future.get();
+                }
+            }
+        } catch (IOException | InterruptedException | ServerException | ExecutionException e) {
             e.printStackTrace();
         } finally {
             server.shutdown();
             threadPool.shutdown();
         }
-        long result = server.getAverageTime();
+        Measurement result = new Measurement(server.getHistogram(), clientLatencies, firstChunkLatencies,
+                server.getStageHistograms(), server.getCounters());
         server.reset();
         return result;
     }
 
-    private enum ServerType {
+    enum ServerType {
         BLOCKING {
             @Override
-            public @NotNull Server getServer() {
-                return new BlockingServer();
+            public @NotNull Server getServer(@NotNull MessageCodec codec, @NotNull SortEngine sortEngine,
+                                             @NotNull WorkerPool workerPool, int chunkSize) {
+                return new BlockingServer(codec, sortEngine, workerPool, options(false, chunkSize, 0));
             }
 
             @Override
@@ -201,16 +443,66 @@ public class Main {
                 return "blocking";
             }
         },
+        BLOCKING_SHARED_WRITERS {
+            @Override
+            public @NotNull Server getServer(@NotNull MessageCodec codec, @NotNull SortEngine sortEngine,
+                                             @NotNull WorkerPool workerPool, int chunkSize) {
+                return new BlockingServer(codec, sortEngine, workerPool,
+                        options(false, chunkSize, Runtime.getRuntime().availableProcessors()));
+            }
+
+            @Override
+            public String toString() {
+                return "blocking shared";
+            }
+        },
         ASYNCHRONOUS {
             @Override
-            public @NotNull Server getServer() {
-                return new AsynchronousServer();
+            public @NotNull Server getServer(@NotNull MessageCodec codec, @NotNull SortEngine sortEngine,
+                                             @NotNull WorkerPool workerPool, int chunkSize) {
+                return new AsynchronousServer(codec, sortEngine, workerPool, options(false, chunkSize, 0));
             }
 
             @Override
             public String toString() {
                 return "asynchronous";
             }
+        },
+        ASYNCHRONOUS_REJECTING {
+            @Override
+            public @NotNull Server getServer(@NotNull MessageCodec codec, @NotNull SortEngine sortEngine,
+                                             @NotNull WorkerPool workerPool, int chunkSize) {
+                return new AsynchronousServer(codec, sortEngine, workerPool, options(true, chunkSize, 0));
+            }
+
+            @Override
+            public String toString() {
+                return "asynchronous rejecting";
+            }
+        },
+        NON_BLOCKING {
+            @Override
+            public @NotNull Server getServer(@NotNull MessageCodec codec, @NotNull SortEngine sortEngine,
+                                             @NotNull WorkerPool workerPool, int chunkSize) {
+                return new NonBlockingServer(codec, sortEngine, workerPool);
+            }
+
+            @Override
+            public String toString() {
+                return "non-blocking";
+            }
+        },
+        VIRTUAL {
+            @Override
+            public @NotNull Server getServer(@NotNull MessageCodec codec, @NotNull SortEngine sortEngine,
+                                             @NotNull WorkerPool workerPool, int chunkSize) {
+                return new VirtualThreadServer(codec, sortEngine, workerPool);
+            }
+
+            @Override
+            public String toString() {
+                return "virtual";
+            }
         };
 
         static ServerType parseInput(String input) {
@@ -218,16 +510,264 @@ public class Main {
                 case "b", "blocking" -> {
                     return ServerType.BLOCKING;
                 }
+                case "bs", "blocking shared" -> {
+                    return ServerType.BLOCKING_SHARED_WRITERS;
+                }
                 case "a", "asynchronous" -> {
                     return ServerType.ASYNCHRONOUS;
                 }
+                case "ar", "asynchronous rejecting" -> {
+                    return ServerType.ASYNCHRONOUS_REJECTING;
+                }
+                case "n", "non-blocking" -> {
+                    return ServerType.NON_BLOCKING;
+                }
+                case "v", "virtual" -> {
+                    return ServerType.VIRTUAL;
+                }
                 default -> {
                     return null;
                 }
             }
         }
 
-        public abstract @NotNull Server getServer();
+        // Ответы кусками (chunkSize > 0) поддерживают блокирующие и асинхронные серверы, остальные отвечают целиком
+        public abstract @NotNull Server getServer(@NotNull MessageCodec codec, @NotNull SortEngine sortEngine,
+                                                  @NotNull WorkerPool workerPool, int chunkSize);
+
+        // Лимиты и порог выгрузки в файл по умолчанию
+        private static @NotNull ServerOptions options(boolean rejectOverload, int chunkSize, int writerThreads) {
+            return new ServerOptions(ServerOptions.DEFAULT_MAX_CLIENT_IN_FLIGHT, ServerOptions.DEFAULT_MAX_IN_FLIGHT,
+                    rejectOverload, chunkSize, ServerOptions.DEFAULT_SPILL_BYTES, writerThreads);
+        }
+    }
+
+    enum SortType {
+        BUBBLE {
+            @Override
+            public @NotNull SortEngine getEngine() {
+                return new BubbleSortEngine();
+            }
+
+            @Override
+            public String toString() {
+                return "bubble";
+            }
+        },
+        JDK {
+            @Override
+            public @NotNull SortEngine getEngine() {
+                return new JdkSortEngine();
+            }
+
+            @Override
+            public String toString() {
+                return "jdk";
+            }
+        },
+        RADIX {
+            @Override
+            public @NotNull SortEngine getEngine() {
+                return new RadixSortEngine();
+            }
+
+            @Override
+            public String toString() {
+                return "radix";
+            }
+        },
+        PARALLEL {
+            @Override
+            public @NotNull SortEngine getEngine() {
+                return new ParallelSortEngine();
+            }
+
+            @Override
+            public String toString() {
+                return "parallel";
+            }
+        };
+
+        static SortType parseInput(String input) {
+            switch (input) {
+                case "b", "bubble" -> {
+                    return SortType.BUBBLE;
+                }
+                case "j", "jdk" -> {
+                    return SortType.JDK;
+                }
+                case "r", "radix" -> {
+                    return SortType.RADIX;
+                }
+                case "p", "parallel" -> {
+                    return SortType.PARALLEL;
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+
+        public abstract @NotNull SortEngine getEngine();
+
+        // При parallelism > 1 массивы от threshold элементов сортируются по частям на fork/join пуле,
+        // при cacheKilobytes > 0 перед сортировкой стоит кэш результатов
+        public @NotNull SortEngine getEngine(int parallelism, int threshold, int cacheKilobytes) {
+            SortEngine engine = getEngine();
+            if (parallelism > 1) {
+                engine = new SplitMergeSortEngine(engine, parallelism,
+                        threshold == 0 ? SplitMergeSortEngine.DEFAULT_THRESHOLD : threshold);
+            }
+            if (cacheKilobytes > 0) {
+                engine = new CachingSortEngine(engine, cacheKilobytes * 1024L);
+            }
+            return engine;
+        }
+    }
+
+    enum PoolType {
+        FIXED {
+            @Override
+            protected @NotNull WorkerPool createPool(int threads) {
+                return new FixedWorkerPool(threads);
+            }
+
+            @Override
+            public String toString() {
+                return "fixed";
+            }
+        },
+        FORK_JOIN {
+            @Override
+            protected @NotNull WorkerPool createPool(int threads) {
+                return new ForkJoinWorkerPool(threads);
+            }
+
+            @Override
+            public String toString() {
+                return "fork join";
+            }
+        },
+        PINNED {
+            @Override
+            protected @NotNull WorkerPool createPool(int threads) {
+                return new PinnedWorkerPool(threads);
+            }
+
+            @Override
+            public String toString() {
+                return "pinned";
+            }
+        },
+        INLINE {
+            @Override
+            protected @NotNull WorkerPool createPool(int threads) {
+                return new InlineWorkerPool();
+            }
+
+            @Override
+            public String toString() {
+                return "inline";
+            }
+        };
+
+        static PoolType parseInput(String input) {
+            switch (input) {
+                case "f", "fixed" -> {
+                    return PoolType.FIXED;
+                }
+                case "fj", "fork join" -> {
+                    return PoolType.FORK_JOIN;
+                }
+                case "p", "pinned" -> {
+                    return PoolType.PINNED;
+                }
+                case "i", "inline" -> {
+                    return PoolType.INLINE;
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+
+        protected abstract @NotNull WorkerPool createPool(int threads);
+
+        // Пул из threads потоков, при 0 - размер по умолчанию
+        public @NotNull WorkerPool getPool(int threads) {
+            return createPool(threads == 0 ? WorkerPool.defaultThreads() : threads);
+        }
+    }
+
+    // Потоки на каждого клиента (Client) или несколько циклов событий на всех (EventLoopGenerator)
+    enum GeneratorType {
+        THREADS {
+            @Override
+            public String toString() {
+                return "threads";
+            }
+        },
+        EVENT_LOOP {
+            @Override
+            public String toString() {
+                return "event loop";
+            }
+        };
+
+        static GeneratorType parseInput(String input) {
+            switch (input) {
+                case "t", "threads" -> {
+                    return GeneratorType.THREADS;
+                }
+                case "e", "event loop" -> {
+                    return GeneratorType.EVENT_LOOP;
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+    }
+
+    enum CodecType {
+        PROTOBUF {
+            @Override
+            public @NotNull MessageCodec getCodec() {
+                return new ProtobufCodec();
+            }
+
+            @Override
+            public String toString() {
+                return "protobuf";
+            }
+        },
+        RAW {
+            @Override
+            public @NotNull MessageCodec getCodec() {
+                return new RawCodec();
+            }
+
+            @Override
+            public String toString() {
+                return "raw";
+            }
+        };
+
+        static CodecType parseInput(String input) {
+            switch (input) {
+                case "p", "protobuf" -> {
+                    return CodecType.PROTOBUF;
+                }
+                case "r", "raw" -> {
+                    return CodecType.RAW;
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+
+        public abstract @NotNull MessageCodec getCodec();
     }
 
     private enum Parameter {
@@ -248,6 +788,55 @@ public class Main {
             public String toString() {
                 return "time between requests";
             }
+        },
+        // Наибольшее число запросов клиента без ответа, 0 - без ограничения
+        PIPELINE_DEPTH {
+            @Override
+            public String toString() {
+                return "pipeline depth";
+            }
+        },
+        // Число потоков пула воркеров, 0 - по числу ядер
+        WORKERS {
+            @Override
+            public String toString() {
+                return "number of workers";
+            }
+        },
+        // Сколько потоков сортируют один большой массив, 0 - сортирует один воркер
+        SORT_PARALLELISM {
+            @Override
+            public String toString() {
+                return "sort parallelism";
+            }
+        },
+        // С какого размера массив делится на части, 0 - порог по умолчанию
+        SPLIT_THRESHOLD {
+            @Override
+            public String toString() {
+                return "split threshold";
+            }
+        },
+        // Объём кэша отсортированных массивов, 0 - без кэша
+        CACHE_SIZE {
+            @Override
+            public String toString() {
+                return "cache size (KB)";
+            }
+        },
+        // Процент запросов, повторяющих уже отправленный массив
+        REPLAY_PERCENT {
+            @Override
+            public String toString() {
+                return "replay percent";
+            }
+        },
+        // Число элементов в куске ответа, 0 - ответ целиком
+        CHUNK_SIZE {
+            @Override
+            public String toString() {
+                return "chunk size";
+            }
         };
 
 
@@ -262,6 +851,27 @@ public class Main {
                 case "time", "time between requests" -> {
                     return Parameter.TIME_BETWEEN_REQUESTS;
                 }
+                case "depth", "pipeline depth" -> {
+                    return Parameter.PIPELINE_DEPTH;
+                }
+                case "workers", "number of workers" -> {
+                    return Parameter.WORKERS;
+                }
+                case "parallelism", "sort parallelism" -> {
+                    return Parameter.SORT_PARALLELISM;
+                }
+                case "threshold", "split threshold" -> {
+                    return Parameter.SPLIT_THRESHOLD;
+                }
+                case "cache", "cache size", "cache size (KB)" -> {
+                    return Parameter.CACHE_SIZE;
+                }
+                case "replay", "replay percent" -> {
+                    return Parameter.REPLAY_PERCENT;
+                }
+                case "chunk", "chunk size" -> {
+                    return Parameter.CHUNK_SIZE;
+                }
                 default -> {
                     return null;
                 }
@@ -269,6 +879,59 @@ public class Main {
         }
     }
 
+    record Measurement(Histogram server, Histogram client, Histogram firstChunk, Map<Stage, Histogram> stages,
+                       Map<String, Number> counters) {}
+
+    record Repetitions(int warmup, int count, double maxRelativeError, int maxReruns) {
+        static final double DEFAULT_MAX_RELATIVE_ERROR = 0.05;
+        static final int DEFAULT_MAX_RERUNS = 3;
+
+        @Override
+        public String toString() {
+            return warmup + " warmup, " + count + " measured, rerun up to " + maxReruns + " times if the error is above "
+                    + Math.round(maxRelativeError * 100) + "%";
+        }
+    }
+
+    record Point(List<Measurement> measurements, int attempts) {
+        // Средние задержки на сервере по запускам, в микросекундах
+        Summary summary() {
+            return Summary.of(measurements.stream().mapToDouble(measurement -> measurement.server().getMean()).toArray());
+        }
+
+        Histogram server() {
+            Histogram histogram = new Histogram();
+            measurements.forEach(measurement -> histogram.add(measurement.server()));
+            return histogram;
+        }
+
+        Histogram client() {
+            Histogram histogram = new Histogram();
+            measurements.forEach(measurement -> histogram.add(measurement.client()));
+            return histogram;
+        }
+
+        Histogram firstChunk() {
+            Histogram histogram = new Histogram();
+            measurements.forEach(measurement -> histogram.add(measurement.firstChunk()));
+            return histogram;
+        }
+
+        Map<Stage, Histogram> stages() {
+            Map<Stage, Histogram> stages = new EnumMap<>(Stage.class);
+            for (Stage stage : Stage.values()) {
+                Histogram histogram = new Histogram();
+                measurements.forEach(measurement -> histogram.add(measurement.stages().get(stage)));
+                stages.put(stage, histogram);
+            }
+            return stages;
+        }
+
+        Map<String, Number> counters() {
+            return measurements.get(measurements.size() - 1).counters();
+        }
+    }
+
     record Bounds(int lower, int upper, int step) implements Iterable<Integer> {
         @Override
         public String toString() {
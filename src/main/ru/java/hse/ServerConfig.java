@@ -0,0 +1,73 @@
+package ru.java.hse;
+
+import org.jetbrains.annotations.NotNull;
+import ru.java.hse.codec.MessageCodec;
+import ru.java.hse.server.RemoteServer;
+import ru.java.hse.server.Server;
+
+import java.util.Properties;
+
+// Настройки сервера, общие для всех точек одной серии. В процесс сервера передаются как key=value,
+// поэтому новое поле достаточно добавить сюда
+public record ServerConfig(Main.ServerType server, Main.CodecType codec, Main.SortType sort, Main.PoolType pool,
+                           int workers, int sortParallelism, int splitThreshold, int cacheKilobytes,
+                           int chunkSize) {
+    public @NotNull Server getServer(@NotNull MessageCodec messageCodec) {
+        return server.getServer(messageCodec, sort.getEngine(sortParallelism, splitThreshold, cacheKilobytes),
+                pool.getPool(workers), chunkSize);
+    }
+
+    public @NotNull Server getServer() {
+        return getServer(codec.getCodec());
+    }
+
+    public @NotNull RemoteServer getRemoteServer(int controlPort) {
+        return new RemoteServer(controlPort, toProperties());
+    }
+
+    public @NotNull Properties toProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("server", server.toString());
+        properties.setProperty("codec", codec.toString());
+        properties.setProperty("sort", sort.toString());
+        properties.setProperty("pool", pool.toString());
+        properties.setProperty("workers", String.valueOf(workers));
+        properties.setProperty("sortParallelism", String.valueOf(sortParallelism));
+        properties.setProperty("splitThreshold", String.valueOf(splitThreshold));
+        properties.setProperty("cacheKilobytes", String.valueOf(cacheKilobytes));
+        properties.setProperty("chunkSize", String.valueOf(chunkSize));
+        return properties;
+    }
+
+    // Отсутствующие числа считаются нулями, то есть значениями по умолчанию
+    public static @NotNull ServerConfig fromProperties(@NotNull Properties properties) {
+        return new ServerConfig(
+                parse(properties, "server", Main.ServerType.parseInput(properties.getProperty("server", ""))),
+                parse(properties, "codec", Main.CodecType.parseInput(properties.getProperty("codec", ""))),
+                parse(properties, "sort", Main.SortType.parseInput(properties.getProperty("sort", ""))),
+                parse(properties, "pool", Main.PoolType.parseInput(properties.getProperty("pool", ""))),
+                number(properties, "workers"),
+                number(properties, "sortParallelism"),
+                number(properties, "splitThreshold"),
+                number(properties, "cacheKilobytes"),
+                number(properties, "chunkSize"));
+    }
+
+    private static <T> T parse(Properties properties, String key, T value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Unknown " + key + " " + properties.getProperty(key));
+        }
+        return value;
+    }
+
+    private static int number(Properties properties, String key) {
+        return Integer.parseInt(properties.getProperty(key, "0").trim());
+    }
+
+    @Override
+    public String toString() {
+        return server + " " + codec + " " + sort + " " + pool + " workers=" + workers +
+                " parallelism=" + sortParallelism + " threshold=" + splitThreshold +
+                " cache=" + cacheKilobytes + "KB chunk=" + chunkSize;
+    }
+}
@@ -0,0 +1,99 @@
+package ru.java.hse;
+
+import ru.java.hse.server.RemoteServer;
+import ru.java.hse.server.Server;
+import ru.java.hse.server.ServerException;
+import ru.java.hse.server.Stage;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+
+// Отдельный процесс с сервером, которым управляет генератор нагрузки через RemoteServer
+public class ServerLauncher {
+    public static void main(String[] args) {
+        int controlPort = Constants.CONTROL_PORT;
+        for (String arg : args) {
+            if (arg.startsWith("--controlPort=")) {
+                controlPort = Integer.parseInt(arg.substring("--controlPort=".length()));
+            }
+        }
+        try (ServerSocket controlSocket = new ServerSocket(controlPort)) {
+            System.out.println("Waiting for the load generator on port " + controlPort);
+            while (true) {
+                try (Socket control = controlSocket.accept()) {
+                    if (!serve(control)) {
+                        return;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    // Возвращает false, если генератор попросил завершить процесс
+    private static boolean serve(Socket control) throws IOException {
+        var input = new DataInputStream(control.getInputStream());
+        var output = new DataOutputStream(control.getOutputStream());
+        Server server = null;
+        try {
+            while (true) {
+                String command = input.readUTF();
+                switch (command) {
+                    case RemoteServer.START -> {
+                        var config = RemoteServer.readConfig(input);
+                        int port = input.readInt();
+                        try {
+                            server = ServerConfig.fromProperties(config).getServer();
+                            server.start(port);
+                            output.writeUTF(RemoteServer.OK);
+                        } catch (IllegalArgumentException | ServerException e) {
+                            server = null;
+                            output.writeUTF(String.valueOf(e.getMessage()));
+                        }
+                    }
+                    case RemoteServer.STOP -> {
+                        if (server == null) {
+                            new Histogram().writeTo(output);
+                            for (int i = 0; i < Stage.values().length; i++) {
+                                new Histogram().writeTo(output);
+                            }
+                            output.writeInt(0);
+                        } else {
+                            server.shutdown();
+                            server.getHistogram().writeTo(output);
+                            // Этапы передаются в порядке объявления
+                            for (Histogram stage : server.getStageHistograms().values()) {
+                                stage.writeTo(output);
+                            }
+                            Map<String, Number> counters = server.getCounters();
+                            output.writeInt(counters.size());
+                            for (Map.Entry<String, Number> counter : counters.entrySet()) {
+                                output.writeUTF(counter.getKey());
+                                output.writeUTF(counter.getValue().toString());
+                            }
+                            server.reset();
+                            server = null;
+                        }
+                    }
+                    case RemoteServer.QUIT -> {
+                        return false;
+                    }
+                    default -> throw new IOException("Unknown command " + command);
+                }
+                output.flush();
+            }
+        } catch (IOException e) {
+            // Генератор отключился, ждём следующего
+            if (server != null) {
+                server.shutdown();
+            }
+            return true;
+        }
+    }
+}
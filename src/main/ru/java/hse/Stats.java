@@ -1,56 +1,33 @@
 package ru.java.hse;
 
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeUnit;
 
 public class Stats {
-    private final Lock lock = new ReentrantLock();
-    private boolean working = true;
-    private Long sum = 0L;
-    private Long count = 0L;
+    private final Histogram histogram = new Histogram();
+    private volatile boolean working = true;
 
     public void reset() {
-        lock.lock();
-        try {
-            sum = 0L;
-            count = 0L;
-            working = true;
-        } finally {
-            lock.unlock();
-        }
+        histogram.reset();
+        working = true;
     }
 
-    public void addMeasurement(long time) {
-        lock.lock();
-        try {
-            if (!working) {
-                return;
-            }
-            sum += time;
-            count++;
-        } finally {
-            lock.unlock();
+    public void addMeasurement(long nanos) {
+        if (!working) {
+            return;
         }
+        histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(nanos));
     }
 
     public void stop() {
-        lock.lock();
-        try {
-            working = false;
-        } finally {
-            lock.unlock();
-        }
+        working = false;
     }
 
     public Long getAverage() {
-        lock.lock();
-        try {
-            if (count == 0) {
-                return 0L;
-            }
-            return sum / count;
-        } finally {
-            lock.unlock();
-        }
+        return (long) histogram.getMean() / 1000;
+    }
+
+    // Копия гистограммы в микросекундах
+    public Histogram getHistogram() {
+        return histogram.copy();
     }
 }
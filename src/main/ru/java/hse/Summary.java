@@ -0,0 +1,39 @@
+package ru.java.hse;
+
+import java.util.Arrays;
+
+// Среднее, стандартное отклонение и полуширина 95% доверительного интервала (по t-распределению)
+public record Summary(int count, double mean, double stddev, double ci95) {
+    // Квантили t-распределения уровня 0.975 для 1..30 степеней свободы
+    private static final double[] T_975 = {
+            12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+    };
+
+    public static Summary of(double[] values) {
+        int n = values.length;
+        if (n == 0) {
+            return new Summary(0, 0, 0, 0);
+        }
+        double mean = Arrays.stream(values).average().orElse(0);
+        if (n == 1) {
+            return new Summary(1, mean, 0, 0);
+        }
+        double squares = 0;
+        for (double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+        double stddev = Math.sqrt(squares / (n - 1));
+        double t = n - 1 <= T_975.length ? T_975[n - 2] : 1.96;
+        return new Summary(n, mean, stddev, t * stddev / Math.sqrt(n));
+    }
+
+    // Относительная полуширина доверительного интервала, для одного запуска считается бесконечной
+    public double relativeError() {
+        if (count < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return mean == 0 ? 0 : ci95 / mean;
+    }
+}
@@ -1,57 +1,44 @@
 package ru.java.hse;
 
-import com.google.protobuf.ByteString;
+import ru.java.hse.codec.MessageCodec;
+import ru.java.hse.codec.ProtobufCodec;
 import ru.java.hse.message.IntArray;
-import ru.java.hse.message.IntArrayProtos;
 
 import java.io.*;
 import java.nio.ByteBuffer;
-import java.util.stream.IntStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
 
 public class Utils {
-    public static IntArray readArray(InputStream inputStream) throws IOException {
-        var dataInputStream = new DataInputStream(inputStream);
-        int size = dataInputStream.readInt();
-        var intArray = IntArrayProtos.IntArray.parseFrom(dataInputStream.readNBytes(size));
+    private static final MessageCodec PROTOBUF = new ProtobufCodec();
 
-        int[] data = intArray.getArrayList().stream().mapToInt(x -> x).toArray();
-        int id = intArray.getId();
-        return new IntArray(id, data);
+    public static IntArray readArray(InputStream inputStream) throws IOException {
+        return PROTOBUF.read(inputStream);
     }
 
     public static IntArray readArray(ByteBuffer inputBuffer) throws IOException {
-        var intArray = IntArrayProtos.IntArray.parseFrom(inputBuffer);
-
-        int[] data = intArray.getArrayList().stream().mapToInt(x -> x).toArray();
-        int id = intArray.getId();
-        return new IntArray(id, data);
+        return PROTOBUF.read(inputBuffer);
     }
 
     public static void writeArray(OutputStream outputStream, IntArray data) throws IOException {
-        var dataOutputStream = new DataOutputStream(outputStream);
-        var intArray = IntArrayProtos.IntArray.newBuilder()
-                .addAllArray(() -> IntStream.of(data.data()).iterator())
-                .setId(data.id())
-                .build();
-
-        ByteString toWrite = intArray.toByteString();
-        dataOutputStream.writeInt(toWrite.size());
-        toWrite.writeTo(dataOutputStream);
-        dataOutputStream.flush();
+        PROTOBUF.write(outputStream, data);
     }
 
     public static ByteBuffer writeArray(IntArray data) {
-        var intArray = IntArrayProtos.IntArray.newBuilder()
-                .addAllArray(() -> IntStream.of(data.data()).iterator())
-                .setId(data.id())
-                .build();
-
-        int size = intArray.getSerializedSize();
-        var byteBuffer = ByteBuffer.allocate(size + Integer.BYTES);
-        byteBuffer.putInt(size);
-        byteBuffer.put(intArray.toByteArray());
-        byteBuffer.flip();
-        return byteBuffer;
+        return PROTOBUF.write(data);
+    }
+
+    // Размер резидентной памяти процесса в байтах, -1 если его не узнать (работает только на Linux)
+    public static long getResidentMemory() {
+        try (Stream<String> lines = Files.lines(Path.of("/proc/self/status"))) {
+            return lines.filter(line -> line.startsWith("VmRSS:"))
+                    .findFirst()
+                    .map(line -> Long.parseLong(line.replaceAll("\\D", "")) * 1024)
+                    .orElse(-1L);
+        } catch (IOException | UncheckedIOException | NumberFormatException e) {
+            return -1;
+        }
     }
 
 
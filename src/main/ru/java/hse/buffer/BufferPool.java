@@ -0,0 +1,109 @@
+package ru.java.hse.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Пул прямых буферов с размерами-степенями двойки. У каждого потока небольшой кэш на каждый размер,
+// остальные буферы лежат в общих списках. Буферы больше самого крупного размера не переиспользуются
+public class BufferPool {
+    private static final int MIN_SHIFT = 9;
+    private static final int MAX_SHIFT = 26;
+    private static final int CLASS_COUNT = MAX_SHIFT - MIN_SHIFT + 1;
+    private static final int LOCAL_CACHE_SIZE = 8;
+    private static final int SHARED_CACHE_SIZE = 256;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final Queue<ByteBuffer>[] shared = new Queue[CLASS_COUNT];
+    private final AtomicInteger[] sharedSizes = new AtomicInteger[CLASS_COUNT];
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final ThreadLocal<ArrayDeque<ByteBuffer>[]> local = ThreadLocal.withInitial(() -> {
+        ArrayDeque<ByteBuffer>[] caches = new ArrayDeque[CLASS_COUNT];
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            caches[i] = new ArrayDeque<>(LOCAL_CACHE_SIZE);
+        }
+        return caches;
+    });
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesAllocated = new LongAdder();
+
+    public BufferPool() {
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            shared[i] = new ConcurrentLinkedQueue<>();
+            sharedSizes[i] = new AtomicInteger();
+        }
+    }
+
+    // Возвращает очищенный буфер с limit == size
+    public ByteBuffer acquire(int size) {
+        int sizeClass = sizeClass(size);
+        if (sizeClass >= CLASS_COUNT) {
+            misses.increment();
+            bytesAllocated.add(size);
+            return ByteBuffer.allocateDirect(size);
+        }
+        ByteBuffer buffer = local.get()[sizeClass].pollLast();
+        if (buffer == null) {
+            buffer = shared[sizeClass].poll();
+            if (buffer != null) {
+                sharedSizes[sizeClass].decrementAndGet();
+            }
+        }
+        if (buffer == null) {
+            misses.increment();
+            bytesAllocated.add(1L << (sizeClass + MIN_SHIFT));
+            buffer = ByteBuffer.allocateDirect(1 << (sizeClass + MIN_SHIFT));
+        } else {
+            hits.increment();
+        }
+        buffer.clear().limit(size);
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        if (!buffer.isDirect() || Integer.bitCount(capacity) != 1) {
+            return;
+        }
+        int sizeClass = Integer.numberOfTrailingZeros(capacity) - MIN_SHIFT;
+        if (sizeClass < 0 || sizeClass >= CLASS_COUNT) {
+            return;
+        }
+        ArrayDeque<ByteBuffer> cache = local.get()[sizeClass];
+        if (cache.size() < LOCAL_CACHE_SIZE) {
+            cache.addLast(buffer);
+        } else if (sharedSizes[sizeClass].incrementAndGet() <= SHARED_CACHE_SIZE) {
+            shared[sizeClass].add(buffer);
+        } else {
+            sharedSizes[sizeClass].decrementAndGet();
+        }
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public long getBytesAllocated() {
+        return bytesAllocated.sum();
+    }
+
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+        bytesAllocated.reset();
+    }
+
+    private static int sizeClass(int size) {
+        if (size <= 1 << MIN_SHIFT) {
+            return 0;
+        }
+        return Integer.SIZE - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+}
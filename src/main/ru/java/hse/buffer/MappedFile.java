@@ -0,0 +1,145 @@
+package ru.java.hse.buffer;
+
+import sun.misc.Unsafe;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Временный файл, отображённый в память сегментами (по умолчанию по 1 ГиБ), поэтому его размер не ограничен
+// ни кучей, ни размером одного буфера. Числа little-endian и выровнены по четыре байта.
+// Файл удаляется сразу после отображения, а close() снимает отображение, не дожидаясь сборки мусора.
+// Поэтому close() можно вызывать, только когда ни один буфер файла уже не используется, в том числе
+// незавершённым вводом-выводом. Снять отображение без Unsafe позволяет только Arena, а она в Java 21 ещё preview
+public class MappedFile implements AutoCloseable {
+    public static final int DEFAULT_SEGMENT_SHIFT = 30;
+
+    private static final Unsafe UNSAFE = unsafe();
+
+    private final long size;
+    private final int segmentShift;
+    private final long segmentSize;
+    private final long segmentMask;
+    private final MappedByteBuffer[] segments;
+    private boolean closed;
+
+    private MappedFile(long size, int segmentShift, MappedByteBuffer[] segments) {
+        this.size = size;
+        this.segmentShift = segmentShift;
+        segmentSize = 1L << segmentShift;
+        segmentMask = segmentSize - 1;
+        this.segments = segments;
+    }
+
+    public static MappedFile create(long size) throws IOException {
+        return create(size, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    // Сегмент в 2^segmentShift байт, не меньше четырёх, чтобы число не попадало на границу сегментов
+    public static MappedFile create(long size, int segmentShift) throws IOException {
+        if (segmentShift < 2 || segmentShift > DEFAULT_SEGMENT_SHIFT) {
+            throw new IllegalArgumentException("Wrong segment shift: " + segmentShift);
+        }
+        long segmentSize = 1L << segmentShift;
+        Path path = Files.createTempFile("sort-", ".bin");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE)) {
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + segmentSize - 1) / segmentSize)];
+            for (int i = 0; i < segments.length; i++) {
+                long position = i * segmentSize;
+                long length = Math.min(segmentSize, size - position);
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, length);
+                segments[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new MappedFile(size, segmentShift, segments);
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int segmentShift() {
+        return segmentShift;
+    }
+
+    public int segmentCount() {
+        return segments.length;
+    }
+
+    // Независимые буферы на весь файл для чтения из сокета и записи в него
+    public ByteBuffer[] byteBuffers() {
+        ByteBuffer[] buffers = new ByteBuffer[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            buffers[i] = segments[i].duplicate();
+        }
+        return buffers;
+    }
+
+    public int getInt(long offset) {
+        return segments[(int) (offset >>> segmentShift)].getInt((int) (offset & segmentMask));
+    }
+
+    public void putInt(long offset, int value) {
+        segments[(int) (offset >>> segmentShift)].putInt((int) (offset & segmentMask), value);
+    }
+
+    public void getInts(long offset, int[] destination) {
+        int done = 0;
+        while (done < destination.length) {
+            long position = offset + (long) done * Integer.BYTES;
+            int count = chunk(position, destination.length - done);
+            segment(position, count).asIntBuffer().get(destination, done, count);
+            done += count;
+        }
+    }
+
+    public void putInts(long offset, int[] source) {
+        int done = 0;
+        while (done < source.length) {
+            long position = offset + (long) done * Integer.BYTES;
+            int count = chunk(position, source.length - done);
+            segment(position, count).asIntBuffer().put(source, done, count);
+            done += count;
+        }
+    }
+
+    // Отображение снимается сразу, иначе память и место на диске держатся до сборки мусора
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (MappedByteBuffer segment : segments) {
+            UNSAFE.invokeCleaner(segment);
+        }
+    }
+
+    private static Unsafe unsafe() {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return (Unsafe) field.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Сколько чисел из оставшихся помещается в сегмент, начиная с position
+    private int chunk(long position, int remaining) {
+        return (int) Math.min(remaining, (segmentSize - (position & segmentMask)) / Integer.BYTES);
+    }
+
+    private ByteBuffer segment(long position, int count) {
+        return segments[(int) (position >>> segmentShift)]
+                .slice((int) (position & segmentMask), count * Integer.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
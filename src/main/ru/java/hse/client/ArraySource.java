@@ -0,0 +1,39 @@
+package ru.java.hse.client;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+// Массивы для запросов всех клиентов одного запуска. С вероятностью replayPercent% повторяется один из
+// недавно отправленных массивов, иначе генерируется новый. Отправленные массивы никто не меняет, поэтому
+// один и тот же массив можно отдавать нескольким клиентам
+public class ArraySource {
+    public static final int HISTORY_SIZE = 1024;
+
+    private final int arraySize;
+    private final int replayPercent;
+    private final int[][] history = new int[HISTORY_SIZE][];
+    private int size;
+
+    public ArraySource(int arraySize, int replayPercent) {
+        this.arraySize = arraySize;
+        this.replayPercent = replayPercent;
+    }
+
+    public int[] next(Random random) {
+        if (replayPercent > 0) {
+            synchronized (history) {
+                if (size > 0 && random.nextInt(100) < replayPercent) {
+                    return history[random.nextInt(size)];
+                }
+            }
+        }
+        int[] data = IntStream.generate(random::nextInt).limit(arraySize).toArray();
+        if (replayPercent > 0) {
+            synchronized (history) {
+                // Когда история заполнена, новый массив вытесняет случайный старый
+                history[size < HISTORY_SIZE ? size++ : random.nextInt(HISTORY_SIZE)] = data;
+            }
+        }
+        return data;
+    }
+}
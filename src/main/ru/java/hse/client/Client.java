@@ -1,70 +1,135 @@
 package ru.java.hse.client;
 
-import ru.java.hse.Utils;
+import ru.java.hse.Histogram;
+import ru.java.hse.codec.MessageCodec;
+import ru.java.hse.codec.ProtobufCodec;
 import ru.java.hse.message.IntArray;
 
 import java.io.IOException;
 import java.net.Socket;
 import java.util.Random;
 import java.util.concurrent.Callable;
-import java.util.stream.IntStream;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
 
 public class Client implements Callable<Void> {
     private final int port;
     private final int arraySize;
     private final int timeDelta;
     private final int countRequests;
+    private final LoadMode loadMode;
+    private final Histogram latencies;
+    // Задержка до первого куска ответа; если сервер отвечает целиком, совпадает с полной
+    private final Histogram firstChunkLatencies;
+    private final MessageCodec codec;
+    // Наибольшее число запросов без ответа, 0 - без ограничения
+    private final int pipelineDepth;
+    private final ArraySource arraySource;
 
     public Client(int port, int arraySize, int timeDelta, int countRequests) {
+        this(port, arraySize, timeDelta, countRequests, LoadMode.CLOSED, new Histogram(), new ProtobufCodec());
+    }
+
+    public Client(int port, int arraySize, int timeDelta, int countRequests, LoadMode loadMode, Histogram latencies,
+                  MessageCodec codec) {
+        this(port, arraySize, timeDelta, countRequests, loadMode, latencies, codec, 0);
+    }
+
+    public Client(int port, int arraySize, int timeDelta, int countRequests, LoadMode loadMode, Histogram latencies,
+                  MessageCodec codec, int pipelineDepth) {
+        this(port, arraySize, timeDelta, countRequests, loadMode, latencies, new Histogram(), codec, pipelineDepth,
+                new ArraySource(arraySize, 0));
+    }
+
+    public Client(int port, int arraySize, int timeDelta, int countRequests, LoadMode loadMode, Histogram latencies,
+                  Histogram firstChunkLatencies, MessageCodec codec, int pipelineDepth, ArraySource arraySource) {
         this.port = port;
         this.arraySize = arraySize;
         this.timeDelta = timeDelta;
         this.countRequests = countRequests;
+        this.loadMode = loadMode;
+        this.latencies = latencies;
+        this.firstChunkLatencies = firstChunkLatencies;
+        this.codec = codec;
+        this.pipelineDepth = pipelineDepth;
+        this.arraySource = arraySource;
     }
 
     @Override
     public Void call() {
         int[][] data = new int[countRequests][];
+        // Время, когда запрос должен был быть отправлен, от него считается задержка на стороне клиента
+        AtomicLongArray intendedStarts = new AtomicLongArray(countRequests);
+        // Писатель занимает место в окне перед отправкой, читатель освобождает его после ответа
+        Semaphore window = new Semaphore(pipelineDepth == 0 ? Integer.MAX_VALUE : pipelineDepth);
+        Thread requestsThread = null;
         try (Socket socket = new Socket("localhost", port)) {
-            Thread requestsThread = new Thread(() -> {
+            requestsThread = new Thread(() -> {
                 try {
+                    Random random = new Random();
+                    long nextStart = System.nanoTime();
                     for (int currentId = 0; currentId < countRequests; currentId++) {
-                        data[currentId] = generateArray();
+                        data[currentId] = arraySource.next(random);
                         IntArray array = new IntArray(currentId, data[currentId]);
-                        long startMillis = System.currentTimeMillis();
-                        Utils.writeArray(socket.getOutputStream(), array);
-                        long endMillis = System.currentTimeMillis();
+                        if (loadMode == LoadMode.CLOSED) {
+                            window.acquire();
+                            long startMillis = System.currentTimeMillis();
+                            intendedStarts.set(currentId, System.nanoTime());
+                            codec.write(socket.getOutputStream(), array);
+                            long endMillis = System.currentTimeMillis();
 
-                        Thread.sleep(Math.max(timeDelta - endMillis + startMillis, 0));
+                            Thread.sleep(Math.max(timeDelta - endMillis + startMillis, 0));
+                        } else {
+                            // Если отстали от расписания, отправляем сразу, не сдвигая его
+                            // Ожидание места в окне входит в задержку, так как она считается от расписания
+                            waitUntil(nextStart);
+                            window.acquire();
+                            intendedStarts.set(currentId, nextStart);
+                            codec.write(socket.getOutputStream(), array);
+                            nextStart += nextInterval(random);
+                        }
                     }
                 } catch (IOException | InterruptedException ignored) {
                 }
             });
             requestsThread.start();
-            for (int i = 0; i < countRequests; i++) {
-                IntArray result = Utils.readArray(socket.getInputStream());
-                if (!checkData(result.data())) {
-                    throw new IllegalStateException("Массив должен быть отсортирован");
+            ResponseTracker responses = new ResponseTracker(countRequests, arraySize, latencies,
+                    firstChunkLatencies);
+            int completed = 0;
+            while (completed < countRequests) {
+                IntArray chunk = codec.read(socket.getInputStream());
+                if (responses.onChunk(chunk, intendedStarts.get(chunk.id()))) {
+                    completed++;
+                    window.release();
                 }
             }
         } catch (IOException ignored) {
+        } finally {
+            // Если сервер отключился, писатель может навсегда остаться ждать места в окне
+            if (requestsThread != null) {
+                requestsThread.interrupt();
+            }
         }
         return null;
     }
 
-    private int[] generateArray() {
-        Random r = new Random();
-        return IntStream.generate(r::nextInt).limit(arraySize).toArray();
+    private long nextInterval(Random random) {
+        long mean = TimeUnit.MILLISECONDS.toNanos(timeDelta);
+        if (loadMode == LoadMode.POISSON) {
+            return (long) (-Math.log(1 - random.nextDouble()) * mean);
+        }
+        return mean;
     }
 
-    private boolean checkData(int[] sortedData) {
-        boolean isOk = true;
-        for (int i = 1; i < sortedData.length; i++) {
-            if (sortedData[i - 1] > sortedData[i]) {
-                isOk = false;
-                break;
+    private static void waitUntil(long deadline) throws InterruptedException {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
             }
         }
-        return isOk;
     }
 }
@@ -0,0 +1,361 @@
+package ru.java.hse.client;
+
+import ru.java.hse.Histogram;
+import ru.java.hse.codec.MessageCodec;
+import ru.java.hse.message.IntArray;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Генератор нагрузки, который обслуживает много клиентов несколькими потоками с селекторами вместо двух
+// потоков на каждый Client. Соединение ведёт себя как Client: те же id, режимы нагрузки, окно запросов,
+// задержка от запланированного момента отправки и проверка ответов. Отправки планируются колесом таймеров
+// с шагом в миллисекунду
+public class EventLoopGenerator {
+    public static final int DEFAULT_EVENT_LOOPS = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int WHEEL_SLOTS = 1024;
+
+    private final int port;
+    private final int arraySize;
+    private final int timeDelta;
+    private final int countRequests;
+    private final LoadMode loadMode;
+    private final Histogram latencies;
+    private final Histogram firstChunkLatencies;
+    private final MessageCodec codec;
+    private final int pipelineDepth;
+    private final int eventLoops;
+    private final ArraySource arraySource;
+
+    private volatile Throwable failure;
+
+    public EventLoopGenerator(int port, int arraySize, int timeDelta, int countRequests, LoadMode loadMode,
+                              Histogram latencies, Histogram firstChunkLatencies, MessageCodec codec,
+                              int pipelineDepth, int eventLoops, ArraySource arraySource) {
+        this.port = port;
+        this.arraySize = arraySize;
+        this.timeDelta = timeDelta;
+        this.countRequests = countRequests;
+        this.loadMode = loadMode;
+        this.latencies = latencies;
+        this.firstChunkLatencies = firstChunkLatencies;
+        this.codec = codec;
+        this.pipelineDepth = pipelineDepth;
+        this.eventLoops = eventLoops;
+        this.arraySource = arraySource;
+    }
+
+    // Открывает соединения и ждёт, пока каждое получит все ответы или отключится
+    public void run(int numberOfClients) throws IOException, InterruptedException {
+        CountDownLatch finished = new CountDownLatch(numberOfClients);
+        EventLoop[] loops = new EventLoop[eventLoops];
+        Thread[] threads = new Thread[eventLoops];
+        try {
+            for (int i = 0; i < eventLoops; i++) {
+                loops[i] = new EventLoop(finished);
+                threads[i] = new Thread(loops[i], "event-loop-" + i);
+                threads[i].start();
+            }
+            for (int i = 0; i < numberOfClients; i++) {
+                loops[i % eventLoops].add(new Connection(finished));
+            }
+            finished.await();
+        } finally {
+            for (EventLoop loop : loops) {
+                if (loop != null) {
+                    loop.stop();
+                }
+            }
+            for (Thread thread : threads) {
+                if (thread != null) {
+                    thread.join();
+                }
+            }
+        }
+        if (failure != null) {
+            throw new IOException("Simulated client failed", failure);
+        }
+    }
+
+    private class EventLoop implements Runnable {
+        private final Selector selector = Selector.open();
+        private final Queue<Connection> pending = new ConcurrentLinkedQueue<>();
+        private final TimerWheel timers = new TimerWheel(TICK_NANOS, WHEEL_SLOTS, System.nanoTime());
+        private final CountDownLatch finished;
+        private volatile boolean working = true;
+
+        EventLoop(CountDownLatch finished) throws IOException {
+            this.finished = finished;
+        }
+
+        // Регистрировать каналы можно только из потока селектора
+        void add(Connection connection) {
+            pending.add(connection);
+            selector.wakeup();
+        }
+
+        void stop() {
+            working = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try (Selector ignored = selector) {
+                try {
+                    while (working) {
+                        registerPending();
+                        if (timers.isEmpty()) {
+                            selector.select();
+                        } else {
+                            selector.select(TimeUnit.NANOSECONDS.toMillis(TICK_NANOS));
+                        }
+                        processKeys();
+                        timers.advance(System.nanoTime());
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failure = e;
+                    // Соединения этого цикла уже не завершатся сами, отпускаем ожидающий поток
+                    while (finished.getCount() > 0) {
+                        finished.countDown();
+                    }
+                }
+                for (SelectionKey key : selector.keys()) {
+                    ((Connection) key.attachment()).finish();
+                }
+            } catch (IOException ignored) {
+            }
+        }
+
+        private void processKeys() {
+            Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+            while (iterator.hasNext()) {
+                SelectionKey key = iterator.next();
+                iterator.remove();
+                if (!key.isValid()) {
+                    continue;
+                }
+                Connection connection = (Connection) key.attachment();
+                if (key.isConnectable()) {
+                    connection.connected();
+                    continue;
+                }
+                if (key.isReadable()) {
+                    connection.read();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    connection.write();
+                }
+            }
+        }
+
+        private void registerPending() {
+            Connection connection;
+            while ((connection = pending.poll()) != null) {
+                connection.open(this);
+            }
+        }
+    }
+
+    private class Connection {
+        private final CountDownLatch finished;
+        private final Random random = new Random();
+        private final long[] intendedStarts = new long[countRequests];
+        private final ResponseTracker responses = new ResponseTracker(countRequests, arraySize, latencies,
+                firstChunkLatencies);
+        private final ByteBuffer sizeBuffer = ByteBuffer.allocate(Integer.BYTES);
+        private final ArrayDeque<ByteBuffer> outputs = new ArrayDeque<>();
+        private final Runnable onTimer = this::onTimer;
+        private EventLoop loop;
+        private SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer arrayBuffer;
+        private boolean readingSize = true;
+
+        private int nextId = 0;
+        private int received = 0;
+        private int inFlight = 0;
+        private long nextStart;
+        private boolean timerScheduled = false;
+        private boolean done = false;
+
+        Connection(CountDownLatch finished) {
+            this.finished = finished;
+        }
+
+        void open(EventLoop loop) {
+            this.loop = loop;
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                key = channel.register(loop.selector, SelectionKey.OP_CONNECT, this);
+                if (channel.connect(new InetSocketAddress("localhost", port))) {
+                    connected();
+                }
+            } catch (IOException e) {
+                finish();
+            }
+        }
+
+        void connected() {
+            try {
+                if (!channel.finishConnect()) {
+                    return;
+                }
+            } catch (IOException e) {
+                finish();
+                return;
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            if (countRequests == 0) {
+                finish();
+                return;
+            }
+            nextStart = System.nanoTime();
+            sendDue();
+        }
+
+        private void onTimer() {
+            timerScheduled = false;
+            sendDue();
+        }
+
+        // Отправляет все запросы, время которых наступило, пока есть место в окне
+        private void sendDue() {
+            if (done) {
+                return;
+            }
+            long now = System.nanoTime();
+            while (nextId < countRequests && nextStart - now <= 0) {
+                if (pipelineDepth > 0 && inFlight >= pipelineDepth) {
+                    // Продолжим, когда придёт ответ
+                    return;
+                }
+                send(now);
+                now = System.nanoTime();
+            }
+            if (nextId < countRequests && !timerScheduled) {
+                timerScheduled = true;
+                loop.timers.schedule(nextStart, onTimer);
+            }
+        }
+
+        private void send(long now) {
+            int id = nextId++;
+            int[] data = arraySource.next(random);
+            // Как и в Client: закрытая нагрузка считает от фактической отправки, открытая от расписания
+            if (loadMode == LoadMode.CLOSED) {
+                intendedStarts[id] = now;
+                nextStart = now + TimeUnit.MILLISECONDS.toNanos(timeDelta);
+            } else {
+                intendedStarts[id] = nextStart;
+                nextStart += nextInterval();
+            }
+            inFlight++;
+            outputs.add(codec.write(new IntArray(id, data)));
+            write();
+        }
+
+        private long nextInterval() {
+            long mean = TimeUnit.MILLISECONDS.toNanos(timeDelta);
+            if (loadMode == LoadMode.POISSON) {
+                return (long) (-Math.log(1 - random.nextDouble()) * mean);
+            }
+            return mean;
+        }
+
+        void write() {
+            try {
+                while (!outputs.isEmpty()) {
+                    ByteBuffer buffer = outputs.peek();
+                    channel.write(buffer);
+                    if (buffer.hasRemaining()) {
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    outputs.poll();
+                }
+                key.interestOps(SelectionKey.OP_READ);
+            } catch (IOException e) {
+                finish();
+            }
+        }
+
+        void read() {
+            try {
+                while (!done) {
+                    if (readingSize) {
+                        if (channel.read(sizeBuffer) < 0) {
+                            finish();
+                            return;
+                        }
+                        if (sizeBuffer.hasRemaining()) {
+                            return;
+                        }
+                        sizeBuffer.flip();
+                        arrayBuffer = ByteBuffer.allocate(sizeBuffer.getInt());
+                        sizeBuffer.clear();
+                        readingSize = false;
+                    }
+                    if (channel.read(arrayBuffer) < 0) {
+                        finish();
+                        return;
+                    }
+                    if (arrayBuffer.hasRemaining()) {
+                        return;
+                    }
+                    readingSize = true;
+                    arrayBuffer.flip();
+                    onResponse(codec.read(arrayBuffer));
+                }
+            } catch (IOException e) {
+                finish();
+            }
+        }
+
+        private void onResponse(IntArray chunk) {
+            int id = chunk.id();
+            if (id < 0 || id >= nextId) {
+                throw new IllegalStateException("Ответ на неотправленный запрос " + id);
+            }
+            if (!responses.onChunk(chunk, intendedStarts[id])) {
+                return;
+            }
+            inFlight--;
+            if (++received == countRequests) {
+                finish();
+                return;
+            }
+            sendDue();
+        }
+
+        void finish() {
+            if (done) {
+                return;
+            }
+            done = true;
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException ignored) {
+            }
+            finished.countDown();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.java.hse.client;
+
+public enum LoadMode {
+    // Следующий запрос отправляется через timeDelta после отправки предыдущего
+    CLOSED {
+        @Override
+        public String toString() {
+            return "closed";
+        }
+    },
+    // Запросы отправляются по заранее заданному расписанию, независимо от скорости сервера
+    FIXED_RATE {
+        @Override
+        public String toString() {
+            return "fixed rate";
+        }
+    },
+    // То же, но интервалы экспоненциальные со средним timeDelta
+    POISSON {
+        @Override
+        public String toString() {
+            return "poisson";
+        }
+    };
+
+    public static LoadMode parseInput(String input) {
+        switch (input) {
+            case "c", "closed" -> {
+                return LoadMode.CLOSED;
+            }
+            case "f", "fixed", "fixed rate" -> {
+                return LoadMode.FIXED_RATE;
+            }
+            case "p", "poisson" -> {
+                return LoadMode.POISSON;
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ru.java.hse.client;
+
+import ru.java.hse.Histogram;
+import ru.java.hse.message.IntArray;
+
+import java.util.concurrent.TimeUnit;
+
+// Собирает ответы одного соединения. Ответ может прийти несколькими кусками, куски разных ответов могут
+// чередоваться; куски должны быть отсортированы и продолжать друг друга. Задержка записывается до первого
+// куска и до последнего. Перегруженный сервер отвечает пустым массивом, такие ответы в задержки не попадают
+class ResponseTracker {
+    private final int arraySize;
+    private final Histogram latencies;
+    private final Histogram firstChunkLatencies;
+    private final int[] receivedElements;
+    private final int[] lastValues;
+
+    ResponseTracker(int countRequests, int arraySize, Histogram latencies, Histogram firstChunkLatencies) {
+        this.arraySize = arraySize;
+        this.latencies = latencies;
+        this.firstChunkLatencies = firstChunkLatencies;
+        receivedElements = new int[countRequests];
+        lastValues = new int[countRequests];
+    }
+
+    // Возвращает true, если кусок завершил ответ. Задержка считается от intendedStart
+    boolean onChunk(IntArray chunk, long intendedStart) {
+        int id = chunk.id();
+        int[] values = chunk.data();
+        long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart);
+        if (values.length == 0) {
+            if (arraySize == 0) {
+                firstChunkLatencies.recordValue(latency);
+                latencies.recordValue(latency);
+            }
+            return true;
+        }
+        if (!isSorted(values) || receivedElements[id] > 0 && lastValues[id] > values[0]) {
+            throw new IllegalStateException("Массив должен быть отсортирован");
+        }
+        if (receivedElements[id] == 0) {
+            firstChunkLatencies.recordValue(latency);
+        }
+        receivedElements[id] += values.length;
+        lastValues[id] = values[values.length - 1];
+        if (receivedElements[id] > arraySize) {
+            throw new IllegalStateException("Ответ длиннее запроса " + id);
+        }
+        if (receivedElements[id] < arraySize) {
+            return false;
+        }
+        latencies.recordValue(latency);
+        return true;
+    }
+
+    private static boolean isSorted(int[] data) {
+        for (int i = 1; i < data.length; i++) {
+            if (data[i - 1] > data[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
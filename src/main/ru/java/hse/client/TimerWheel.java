@@ -0,0 +1,57 @@
+package ru.java.hse.client;
+
+import java.util.ArrayDeque;
+
+// Хешированное колесо таймеров: задача лежит в корзине своего тика, задачи следующих оборотов
+// остаются в корзине, пока не наступит их срок. Используется только из одного потока.
+// Время берётся из System.nanoTime() и может быть отрицательным
+class TimerWheel {
+    private final long tickNanos;
+    private final ArrayDeque<Timer>[] slots;
+    private long currentTick;
+    private int size;
+
+    private record Timer(long deadline, Runnable task) {}
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TimerWheel(long tickNanos, int slotCount, long now) {
+        this.tickNanos = tickNanos;
+        slots = new ArrayDeque[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ArrayDeque<>();
+        }
+        currentTick = Math.floorDiv(now, tickNanos);
+    }
+
+    void schedule(long deadline, Runnable task) {
+        long tick = Math.max(Math.floorDiv(deadline, tickNanos), currentTick);
+        slots[Math.floorMod(tick, slots.length)].add(new Timer(deadline, task));
+        size++;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Выполняет задачи, срок которых наступил к моменту now. Текущий тик обходится и в следующий раз,
+    // так как в нём могут быть задачи со сроком позже now
+    void advance(long now) {
+        long target = Math.floorDiv(now, tickNanos);
+        for (; currentTick <= target; currentTick++) {
+            ArrayDeque<Timer> slot = slots[Math.floorMod(currentTick, slots.length)];
+            // Задачи, добавленные во время обхода, попадут в конец и дождутся следующего вызова
+            for (int i = slot.size(); i > 0; i--) {
+                Timer timer = slot.poll();
+                if (timer.deadline - now <= 0) {
+                    size--;
+                    timer.task.run();
+                } else {
+                    slot.add(timer);
+                }
+            }
+            if (currentTick == target) {
+                break;
+            }
+        }
+    }
+}
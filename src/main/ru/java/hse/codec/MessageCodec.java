@@ -0,0 +1,50 @@
+package ru.java.hse.codec;
+
+import ru.java.hse.buffer.BufferPool;
+import ru.java.hse.message.IntArray;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+// Каждое сообщение предваряется длиной (int, big-endian), формат самого сообщения задаёт кодек
+public interface MessageCodec {
+    IntArray read(InputStream inputStream) throws IOException;
+
+    // Буфер содержит только тело сообщения, без длины
+    IntArray read(ByteBuffer inputBuffer) throws IOException;
+
+    void write(OutputStream outputStream, IntArray data) throws IOException;
+
+    // Возвращает буфер, готовый к записи, вместе с длиной
+    ByteBuffer write(IntArray data);
+
+    // То же, но в буфер из пула, который нужно вернуть после отправки
+    default ByteBuffer write(IntArray data, BufferPool pool) {
+        ByteBuffer encoded = write(data);
+        ByteBuffer buffer = pool.acquire(encoded.remaining());
+        buffer.put(encoded);
+        buffer.flip();
+        return buffer;
+    }
+
+    // Кодирует в переданный буфер (начиная с нуля), если он вмещает сообщение, иначе в новый.
+    // Так один буфер можно переиспользовать для всех сообщений соединения
+    default ByteBuffer write(IntArray data, ByteBuffer buffer) {
+        ByteBuffer encoded = write(data);
+        if (buffer == null || buffer.capacity() < encoded.remaining()) {
+            return encoded;
+        }
+        buffer.clear();
+        buffer.put(encoded);
+        buffer.flip();
+        return buffer;
+    }
+
+    // Тело сообщения - id и элементы подряд, по 4 байта little-endian. Такие сообщения можно сортировать,
+    // не разбирая их в массив
+    default boolean hasRawLayout() {
+        return false;
+    }
+}
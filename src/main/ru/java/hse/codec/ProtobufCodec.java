@@ -0,0 +1,142 @@
+package ru.java.hse.codec;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import ru.java.hse.buffer.BufferPool;
+import ru.java.hse.message.IntArray;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Формат сообщения IntArray из int_array.proto, но без промежуточного сгенерированного объекта и упаковки в Integer
+public class ProtobufCodec implements MessageCodec {
+    private static final int ID_FIELD = 1;
+    private static final int ARRAY_FIELD = 2;
+
+    @Override
+    public IntArray read(InputStream inputStream) throws IOException {
+        var dataInputStream = new DataInputStream(inputStream);
+        int size = dataInputStream.readInt();
+        byte[] bytes = dataInputStream.readNBytes(size);
+        return read(CodedInputStream.newInstance(bytes), size);
+    }
+
+    @Override
+    public IntArray read(ByteBuffer inputBuffer) throws IOException {
+        int size = inputBuffer.remaining();
+        IntArray result = read(CodedInputStream.newInstance(inputBuffer), size);
+        inputBuffer.position(inputBuffer.limit());
+        return result;
+    }
+
+    private static IntArray read(CodedInputStream input, int size) throws IOException {
+        int id = 0;
+        // Каждое число занимает от 1 до 10 байт, случайные int в среднем около 5
+        int[] data = new int[size / 5 + 1];
+        int count = 0;
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            int field = WireFormat.getTagFieldNumber(tag);
+            int wireType = WireFormat.getTagWireType(tag);
+            if (field == ID_FIELD && wireType == WireFormat.WIRETYPE_VARINT) {
+                id = input.readInt32();
+            } else if (field == ARRAY_FIELD && wireType == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                int limit = input.pushLimit(input.readRawVarint32());
+                while (input.getBytesUntilLimit() > 0) {
+                    if (count == data.length) {
+                        data = Arrays.copyOf(data, data.length * 2);
+                    }
+                    data[count++] = input.readInt32();
+                }
+                input.popLimit(limit);
+            } else if (field == ARRAY_FIELD && wireType == WireFormat.WIRETYPE_VARINT) {
+                if (count == data.length) {
+                    data = Arrays.copyOf(data, data.length * 2);
+                }
+                data[count++] = input.readInt32();
+            } else if (!input.skipField(tag)) {
+                break;
+            }
+        }
+        return new IntArray(id, count == data.length ? data : Arrays.copyOf(data, count));
+    }
+
+    @Override
+    public void write(OutputStream outputStream, IntArray data) throws IOException {
+        ByteBuffer buffer = write(data);
+        outputStream.write(buffer.array(), 0, buffer.limit());
+        outputStream.flush();
+    }
+
+    @Override
+    public ByteBuffer write(IntArray data) {
+        return write(data, (ByteBuffer) null);
+    }
+
+    // Длина и тело пишутся сразу в буфер из пула, без промежуточного массива
+    @Override
+    public ByteBuffer write(IntArray data, BufferPool pool) {
+        int arraySize = arraySize(data.data());
+        return encode(data, arraySize, pool.acquire(Integer.BYTES + messageSize(data, arraySize)));
+    }
+
+    @Override
+    public ByteBuffer write(IntArray data, ByteBuffer buffer) {
+        int arraySize = arraySize(data.data());
+        int size = Integer.BYTES + messageSize(data, arraySize);
+        if (buffer == null || buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(size);
+        }
+        buffer.clear().limit(size);
+        return encode(data, arraySize, buffer);
+    }
+
+    private static int arraySize(int[] array) {
+        int arraySize = 0;
+        for (int value : array) {
+            arraySize += CodedOutputStream.computeInt32SizeNoTag(value);
+        }
+        return arraySize;
+    }
+
+    private static int messageSize(IntArray data, int arraySize) {
+        int size = data.id() == 0 ? 0 : CodedOutputStream.computeInt32Size(ID_FIELD, data.id());
+        if (data.data().length > 0) {
+            size += CodedOutputStream.computeTagSize(ARRAY_FIELD)
+                    + CodedOutputStream.computeUInt32SizeNoTag(arraySize)
+                    + arraySize;
+        }
+        return size;
+    }
+
+    // Буфер должен вмещать ровно длину и сообщение. CodedOutputStream над ByteBuffer сдвигает его позицию при flush
+    private static ByteBuffer encode(IntArray data, int arraySize, ByteBuffer buffer) {
+        int[] array = data.data();
+        buffer.putInt(buffer.remaining() - Integer.BYTES);
+        try {
+            CodedOutputStream output = CodedOutputStream.newInstance(buffer);
+            if (data.id() != 0) {
+                output.writeInt32(ID_FIELD, data.id());
+            }
+            if (array.length > 0) {
+                output.writeTag(ARRAY_FIELD, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                output.writeUInt32NoTag(arraySize);
+                for (int value : array) {
+                    output.writeInt32NoTag(value);
+                }
+            }
+            output.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("Serializing to a byte buffer threw an IOException", e);
+        }
+        if (buffer.hasRemaining()) {
+            throw new IllegalStateException("Did not write as much data as expected");
+        }
+        return buffer.flip();
+    }
+}
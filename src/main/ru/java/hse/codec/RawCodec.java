@@ -0,0 +1,77 @@
+package ru.java.hse.codec;
+
+import ru.java.hse.buffer.BufferPool;
+import ru.java.hse.message.IntArray;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Тело сообщения: id и элементы массива, каждое число занимает 4 байта little-endian
+public class RawCodec implements MessageCodec {
+    @Override
+    public IntArray read(InputStream inputStream) throws IOException {
+        var dataInputStream = new DataInputStream(inputStream);
+        int size = dataInputStream.readInt();
+        return read(ByteBuffer.wrap(dataInputStream.readNBytes(size)));
+    }
+
+    @Override
+    public IntArray read(ByteBuffer inputBuffer) throws IOException {
+        if (inputBuffer.remaining() < Integer.BYTES || inputBuffer.remaining() % Integer.BYTES != 0) {
+            throw new IOException("Wrong message size: " + inputBuffer.remaining());
+        }
+        ByteBuffer buffer = inputBuffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int id = buffer.getInt();
+        int[] data = new int[buffer.remaining() / Integer.BYTES];
+        buffer.asIntBuffer().get(data);
+        inputBuffer.position(inputBuffer.limit());
+        return new IntArray(id, data);
+    }
+
+    @Override
+    public void write(OutputStream outputStream, IntArray data) throws IOException {
+        ByteBuffer buffer = write(data);
+        outputStream.write(buffer.array(), 0, buffer.limit());
+        outputStream.flush();
+    }
+
+    @Override
+    public ByteBuffer write(IntArray data) {
+        int size = Integer.BYTES * (data.data().length + 1);
+        return encode(data, ByteBuffer.allocate(size + Integer.BYTES));
+    }
+
+    @Override
+    public ByteBuffer write(IntArray data, BufferPool pool) {
+        return encode(data, pool.acquire(Integer.BYTES * (data.data().length + 2)));
+    }
+
+    @Override
+    public ByteBuffer write(IntArray data, ByteBuffer buffer) {
+        int size = Integer.BYTES * (data.data().length + 2);
+        if (buffer == null || buffer.capacity() < size) {
+            return write(data);
+        }
+        return encode(data, buffer.clear());
+    }
+
+    @Override
+    public boolean hasRawLayout() {
+        return true;
+    }
+
+    private static ByteBuffer encode(IntArray data, ByteBuffer byteBuffer) {
+        int size = Integer.BYTES * (data.data().length + 1);
+        byteBuffer.putInt(size);
+        byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
+        byteBuffer.putInt(data.id());
+        byteBuffer.asIntBuffer().put(data.data());
+        byteBuffer.order(ByteOrder.BIG_ENDIAN);
+        byteBuffer.position(0).limit(size + Integer.BYTES);
+        return byteBuffer;
+    }
+}
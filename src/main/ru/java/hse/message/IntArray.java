@@ -1,17 +1,18 @@
 package ru.java.hse.message;
 
+import ru.java.hse.sort.BubbleSortEngine;
+import ru.java.hse.sort.SortEngine;
+
 public record IntArray(int id, int[] data) {
+    private static final SortEngine DEFAULT_ENGINE = new BubbleSortEngine();
+
     public static IntArray sort(IntArray source) {
+        return sort(source, DEFAULT_ENGINE);
+    }
+
+    public static IntArray sort(IntArray source, SortEngine engine) {
         int[] data = source.data();
-        for (int j = 0; j < data.length - 1; j++) {
-            for (int i = 0; i < data.length - 1; i++) {
-                if (data[i] > data[i + 1]) {
-                    int t = data[i + 1];
-                    data[i + 1] = data[i];
-                    data[i] = t;
-                }
-            }
-        }
+        engine.sort(data);
         return new IntArray(source.id, data);
     }
 }
@@ -1,7 +1,17 @@
 package ru.java.hse.server;
 
-import ru.java.hse.Utils;
+import ru.java.hse.Constants;
+import ru.java.hse.buffer.BufferPool;
+import ru.java.hse.buffer.MappedFile;
+import ru.java.hse.codec.MessageCodec;
+import ru.java.hse.codec.ProtobufCodec;
 import ru.java.hse.message.IntArray;
+import ru.java.hse.sort.BubbleSortEngine;
+import ru.java.hse.sort.ExternalSort;
+import ru.java.hse.sort.SortEngine;
+import ru.java.hse.sort.SortedChunks;
+import ru.java.hse.worker.FixedWorkerPool;
+import ru.java.hse.worker.WorkerPool;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -9,30 +19,84 @@ import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousServerSocketChannel;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.CompletionHandler;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.Queue;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 public class AsynchronousServer extends Server {
-    private ExecutorService workerThreadPool;
+    // Ограничения на число ответов и байт, отправляемых одной операцией записи
+    private static final int MAX_BATCH_COUNT = 64;
+    private static final int MAX_BATCH_BYTES = 1 << 20;
+
     private AsynchronousServerSocketChannel serverSocketChannel;
+    private final BufferPool bufferPool = new BufferPool();
+
+    // Смысл полей описан в ServerOptions
+    private final int maxClientInFlight;
+    private final int maxInFlight;
+    private final boolean rejectOverload;
+    private final int chunkSize;
+    private final long spillBytes;
+    private final int spillSegmentShift;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Queue<ClientHandler> waitingClients = new ConcurrentLinkedQueue<>();
+
+    private final LongAccumulator peakInFlight = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator peakWorkerQueue = new LongAccumulator(Math::max, 0);
+    private final LongAdder readPauses = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+
+    public AsynchronousServer() {
+        this(new ProtobufCodec(), new BubbleSortEngine());
+    }
+
+    public AsynchronousServer(MessageCodec codec, SortEngine sortEngine) {
+        this(codec, sortEngine, new FixedWorkerPool());
+    }
+
+    public AsynchronousServer(MessageCodec codec, SortEngine sortEngine, WorkerPool workerPool) {
+        this(codec, sortEngine, workerPool, ServerOptions.DEFAULT);
+    }
+
+    public AsynchronousServer(MessageCodec codec, SortEngine sortEngine, WorkerPool workerPool,
+                              ServerOptions options) {
+        this(codec, sortEngine, workerPool, options, MappedFile.DEFAULT_SEGMENT_SHIFT);
+    }
+
+    // Сегменты файлов меньше обычного нужны тестам, чтобы ответ из файла занимал несколько буферов
+    AsynchronousServer(MessageCodec codec, SortEngine sortEngine, WorkerPool workerPool, ServerOptions options,
+                       int spillSegmentShift) {
+        super(codec, sortEngine, workerPool);
+        maxClientInFlight = options.maxClientInFlight();
+        maxInFlight = options.maxInFlight();
+        rejectOverload = options.rejectOverload();
+        chunkSize = options.chunkSize();
+        spillBytes = options.spillBytes();
+        this.spillSegmentShift = spillSegmentShift;
+    }
 
     @Override
     public void start(int port) throws ServerException {
-        workerThreadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() - 2);
+        workerPool.start(Executors.defaultThreadFactory());
+        inFlight.set(0);
+        waitingClients.clear();
         try {
             serverSocketChannel = AsynchronousServerSocketChannel.open();
-            serverSocketChannel.bind(new InetSocketAddress(port));
+            serverSocketChannel.bind(new InetSocketAddress(port), Constants.BACKLOG);
             serverSocketChannel.accept(serverSocketChannel, new CompletionHandler<>() {
                 @Override
                 public void completed(AsynchronousSocketChannel channel, AsynchronousServerSocketChannel server) {
                     server.accept(server, this);
                     var client = new ClientHandler(channel, currentClientId++);
-                    channel.read(client.sizeBuffer, client, client.readHandler);
+                    client.readNext();
                 }
 
                 @Override
@@ -48,69 +112,238 @@ public class AsynchronousServer extends Server {
     @Override
     public void shutdown() {
         try {
-            workerThreadPool.shutdown();
+            workerPool.shutdown();
+            sortEngine.shutdown();
             serverSocketChannel.close();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        bufferPool.resetStats();
+        peakInFlight.reset();
+        peakWorkerQueue.reset();
+        readPauses.reset();
+        rejected.reset();
+        spilled.reset();
+    }
+
+    @Override
+    public Map<String, Number> getCounters() {
+        Map<String, Number> counters = super.getCounters();
+        counters.put("poolHitRate", bufferPool.getHitRate());
+        counters.put("poolBytesAllocated", bufferPool.getBytesAllocated());
+        counters.put("peakInFlight", peakInFlight.get());
+        counters.put("peakWorkerQueue", peakWorkerQueue.get());
+        counters.put("readPauses", readPauses.sum());
+        counters.put("rejected", rejected.sum());
+        counters.put("spilled", spilled.sum());
+        return counters;
+    }
+
+    // Место в глобальном лимите, лимит не превышается никогда
+    private boolean acquireSlot() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= maxInFlight) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                peakInFlight.accumulate(current + 1);
+                return true;
+            }
+        }
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        grantWaiting();
+    }
+
+    // Раздаёт свободные места клиентам, которые ждут их, чтобы прочитать тело запроса. Вызывается и после
+    // освобождения места, и после постановки в очередь, поэтому ни место, ни клиент не теряются
+    private void grantWaiting() {
+        while (!waitingClients.isEmpty() && acquireSlot()) {
+            ClientHandler client = waitingClients.poll();
+            if (client == null) {
+                inFlight.decrementAndGet();
+                continue;
+            }
+            client.slotGranted();
+        }
+    }
+
+    private enum Admission {
+        ADMITTED,
+        REJECTED,
+        CLOSED
+    }
+
     private class ClientHandler {
         private final AsynchronousSocketChannel channel;
         private final ByteBuffer sizeBuffer = ByteBuffer.allocate(Integer.BYTES);
         private final int clientId;
         private ByteBuffer arrayBuffer;
+        private MappedFile spillFile;
+        private ByteBuffer[] spillBuffers;
         private boolean readingSize = true;
+        private int bodySize;
+        private long readStart;
         private final WriteData writeData = new WriteData();
 
-        private final Lock queue = new ReentrantLock();
-
         private final AtomicBoolean closed = new AtomicBoolean(false);
 
+        // Запросы клиента, на которые ещё не отправлен ответ (включая отказы), и те из них, что заняли глобальный лимит
+        private final AtomicInteger clientInFlight = new AtomicInteger();
+        private final AtomicInteger admitted = new AtomicInteger();
+        private final AtomicBoolean paused = new AtomicBoolean(false);
+        // Место в глобальном лимите, занятое под тело, которое читается сейчас
+        private final AtomicBoolean slotHeld = new AtomicBoolean(false);
+
+        // Ответы кладут воркеры, а забирает только тот, кто выставил writeWorking
         private class WriteData {
             private final AtomicBoolean writeWorking = new AtomicBoolean(false);
-            private final Queue<Pair<ByteBuffer, Integer>> outputs = new LinkedList<>();
-            private volatile ByteBuffer currentBuffer;
-            private int currentId;
+            private final MpscQueue<Output> outputs = new MpscQueue<>();
+            private ByteBuffer[] buffers = new ByteBuffer[MAX_BATCH_COUNT];
+            private long[] starts = new long[MAX_BATCH_COUNT];
+            private boolean[] rejects = new boolean[MAX_BATCH_COUNT];
+            private boolean[] lasts = new boolean[MAX_BATCH_COUNT];
+            private MappedFile[] mappings = new MappedFile[MAX_BATCH_COUNT];
+            private int batchSize;
+            private int offset;
+            private long batchStart;
+
+            // Забирает из очереди все ответы, пока не упрётся в ограничения. Сегменты файла занимают по ячейке,
+            // но берутся все вместе, чтобы между ними не попал другой ответ
+            public void collectBatch() {
+                batchSize = 0;
+                offset = 0;
+                long bytes = 0;
+                batchStart = System.nanoTime();
+                while (!outputs.isEmpty()) {
+                    Output output = outputs.peek();
+                    int count = output.mapping == null ? 1 : output.mapping.segmentCount();
+                    long size = output.mapping == null ? output.buffer.remaining() : output.mapping.size();
+                    if (batchSize > 0 && (batchSize + count > MAX_BATCH_COUNT || bytes + size > MAX_BATCH_BYTES)) {
+                        break;
+                    }
+                    if (count > buffers.length) {
+                        grow(count);
+                    }
+                    outputs.poll();
+                    if (output.mapping == null) {
+                        put(output.buffer, output, output.last);
+                    } else {
+                        ByteBuffer[] segments = output.mapping.byteBuffers();
+                        for (int i = 0; i < segments.length; i++) {
+                            put(segments[i], output, i == segments.length - 1);
+                        }
+                    }
+                    if (!output.rejected) {
+                        recordStage(Stage.WRITE_QUEUE, output.queued, batchStart);
+                    }
+                    bytes += size;
+                }
+            }
+
+            private void put(ByteBuffer buffer, Output output, boolean last) {
+                buffers[batchSize] = buffer;
+                starts[batchSize] = output.start;
+                rejects[batchSize] = output.rejected;
+                lasts[batchSize] = last;
+                mappings[batchSize] = output.mapping;
+                batchSize++;
+            }
+
+            // Файл с сегментами меньше обычного может не поместиться в пустую пачку
+            private void grow(int capacity) {
+                buffers = Arrays.copyOf(buffers, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                rejects = Arrays.copyOf(rejects, capacity);
+                lasts = Arrays.copyOf(lasts, capacity);
+                mappings = Arrays.copyOf(mappings, capacity);
+            }
+
+            // Буфер возвращается в пул, а файл закрывается вместе с последним сегментом
+            private void free(int index) {
+                if (mappings[index] == null) {
+                    bufferPool.release(buffers[index]);
+                } else if (lasts[index]) {
+                    mappings[index].close();
+                }
+                buffers[index] = null;
+                mappings[index] = null;
+            }
+
+            // Клиент закрыт: освобождает неотправленные ответы. Вызывает только тот, кто выставил writeWorking,
+            // поэтому ни одна запись этих буферов уже не выполняется
+            public void discard() {
+                for (; offset < batchSize; offset++) {
+                    free(offset);
+                }
+                Output output;
+                while ((output = outputs.poll()) != null) {
+                    if (output.mapping == null) {
+                        bufferPool.release(output.buffer);
+                    } else {
+                        output.mapping.close();
+                    }
+                }
+            }
 
-            public ByteBuffer getNextOutput() {
-                var tmp = outputs.remove();
-                currentBuffer = tmp.left;
-                currentId = tmp.right;
-                return currentBuffer;
+            public void writeBatch() {
+                channel.write(buffers, offset, batchSize - offset, 0, TimeUnit.MILLISECONDS, this, writeHandler);
             }
         }
 
-        private record Pair<A, B>(A left, B right) {}
+        // Ответ кусками занимает несколько Output, запрос считается обработанным после последнего (last).
+        // Ответ из отображённого файла (mapping) - один Output без buffer, файл закрывается после отправки
+        private record Output(ByteBuffer buffer, long start, long queued, boolean rejected, boolean last,
+                              MappedFile mapping) {}
 
-        public final CompletionHandler<Integer, WriteData> writeHandler = new CompletionHandler<>() {
+        public final CompletionHandler<Long, WriteData> writeHandler = new CompletionHandler<>() {
             @Override
-            public void completed(Integer count, WriteData writeData) {
+            public void completed(Long count, WriteData writeData) {
                 if (count < 0) {
-                    close();
-                    return;
-                }
-                if (writeData.currentBuffer.hasRemaining()) {
-                    channel.write(writeData.currentBuffer, writeData, this);
+                    failed(null, writeData);
                     return;
                 }
-                endMeasure(writeData.currentId, clientId);
-
-                queue.lock();
-                try {
-                    if (!writeData.outputs.isEmpty()) {
-                        channel.write(writeData.getNextOutput(), writeData, this);
-                    } else {
-                        writeData.writeWorking.set(false);
+                // Замер заканчивается для каждого ответа, который полностью ушёл
+                long now = System.nanoTime();
+                while (writeData.offset < writeData.batchSize && !writeData.buffers[writeData.offset].hasRemaining()) {
+                    boolean wasRejected = writeData.rejects[writeData.offset];
+                    boolean last = writeData.lasts[writeData.offset];
+                    boolean segment = writeData.mappings[writeData.offset] != null && !last;
+                    if (!wasRejected && !segment) {
+                        recordStage(Stage.WRITE, writeData.batchStart, now);
+                        if (last) {
+                            endMeasure(writeData.starts[writeData.offset]);
+                        }
                     }
-                } finally {
-                    queue.unlock();
+                    writeData.free(writeData.offset);
+                    writeData.offset++;
+                    if (last) {
+                        responseSent(!wasRejected);
+                    }
+                }
+                if (writeData.offset < writeData.batchSize) {
+                    writeData.writeBatch();
+                    return;
                 }
+                writeData.writeWorking.set(false);
+                startWriting();
             }
 
+            // Запись уже не выполняется, поэтому её буферы и очередь можно освободить
             @Override
             public void failed(Throwable throwable, WriteData writeData) {
                 close();
+                writeData.discard();
+                writeData.writeWorking.set(false);
+                startWriting();
             }
         };
         public final CompletionHandler<Integer, ClientHandler> readHandler = new CompletionHandler<>() {
@@ -138,19 +371,23 @@ public class AsynchronousServer extends Server {
                 ByteBuffer buffer = client.arrayBuffer;
 
                 // Отправляем решаться задачу
-                processTask(client, buffer);
+                if (!processTask(client, buffer)) {
+                    return;
+                }
 
-                // Начинаем читать новое сообщение
-                client.channel.read(client.sizeBuffer, client, this);
+                // Начинаем читать новое сообщение, если клиент не упёрся в ограничения
+                client.readNext();
             }
 
+            // Без режима отказов тело читается только после того, как запрос занял место в глобальном лимите
             private void startReadArray(ClientHandler client) {
                 client.readingSize = false;
                 client.sizeBuffer.flip();
-                int size = client.sizeBuffer.getInt();
+                client.bodySize = client.sizeBuffer.getInt();
                 client.sizeBuffer.clear();
-                client.arrayBuffer = ByteBuffer.allocate(size);
-                client.channel.read(client.arrayBuffer, client, this);
+                if (rejectOverload || client.acquireOrWait()) {
+                    client.readBody();
+                }
             }
 
             @Override
@@ -158,41 +395,299 @@ public class AsynchronousServer extends Server {
                 clientHandler.close();
             }
 
-            private void processTask(ClientHandler client, ByteBuffer dataBuffer) {
+            // Возвращает false, если клиент закрыт: сообщение не разобралось или клиент закрылся раньше
+            private boolean processTask(ClientHandler client, ByteBuffer dataBuffer) {
+                long decodeStart = endStage(Stage.READ, client.readStart);
+                IntArray data;
                 try {
                     dataBuffer.flip();
-                    IntArray data = Utils.readArray(dataBuffer);
-                    startMeasure(data.id(), client.clientId);
-                    workerThreadPool.submit(() -> {
-                        IntArray newData = IntArray.sort(data);
-                        client.write(Utils.writeArray(newData), newData.id());
-                    });
-                } catch (IOException e) {
+                    data = codec.read(dataBuffer);
+                } catch (IOException | RuntimeException e) {
                     e.printStackTrace();
                     client.close();
+                    return false;
+                } finally {
+                    bufferPool.release(dataBuffer);
                 }
+                endStage(Stage.DECODE, decodeStart);
+                client.clientInFlight.incrementAndGet();
+                switch (client.admit()) {
+                    case REJECTED -> {
+                        rejected.increment();
+                        ByteBuffer reject = codec.write(new IntArray(data.id(), new int[0]), bufferPool);
+                        client.write(reject, 0, 0, true, true);
+                        return true;
+                    }
+                    case CLOSED -> {
+                        return false;
+                    }
+                }
+                long start = startMeasure();
+                peakWorkerQueue.accumulate(workerPool.getQueueSize());
+                workerPool.execute(client.clientId, () -> {
+                    long sortStart = endStage(Stage.QUEUE, start);
+                    if (chunkSize > 0) {
+                        client.writeChunks(data, start, sortStart);
+                        return;
+                    }
+                    IntArray newData = IntArray.sort(data, sortEngine);
+                    long encodeStart = endStage(Stage.SORT, sortStart);
+                    ByteBuffer buffer = codec.write(newData, bufferPool);
+                    client.write(buffer, start, endStage(Stage.ENCODE, encodeStart), false, true);
+                });
+                return true;
             }
         };
 
+        // Каждый кусок кодируется и уходит на запись, пока сливаются следующие
+        private void writeChunks(IntArray data, long start, long sortStart) {
+            SortedChunks chunks = new SortedChunks(data.data(), sortEngine, chunkSize);
+            long chunkStart = sortStart;
+            while (chunks.hasNext()) {
+                int[] chunk = chunks.next();
+                long encodeStart = endStage(Stage.SORT, chunkStart);
+                ByteBuffer buffer = codec.write(new IntArray(data.id(), chunk), bufferPool);
+                chunkStart = endStage(Stage.ENCODE, encodeStart);
+                write(buffer, start, chunkStart, false, !chunks.hasNext());
+            }
+        }
+
+        public final CompletionHandler<Long, ClientHandler> spillReadHandler = new CompletionHandler<>() {
+            @Override
+            public void completed(Long count, ClientHandler client) {
+                if (count < 0) {
+                    client.closeSpill();
+                    client.close();
+                    return;
+                }
+                if (client.spillBuffers[client.spillBuffers.length - 1].hasRemaining()) {
+                    client.readSpillBuffers();
+                    return;
+                }
+                client.readingSize = true;
+                MappedFile file = client.spillFile;
+                client.spillFile = null;
+                client.spillBuffers = null;
+                client.processSpilled(file);
+                client.readNext();
+            }
+
+            @Override
+            public void failed(Throwable throwable, ClientHandler clientHandler) {
+                clientHandler.closeSpill();
+                clientHandler.close();
+            }
+        };
+
+        private void readBody() {
+            if (spillBytes > 0 && bodySize > spillBytes && codec.hasRawLayout()) {
+                try {
+                    readSpill(bodySize);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    close();
+                }
+                return;
+            }
+            arrayBuffer = bufferPool.acquire(bodySize);
+            readStart = System.nanoTime();
+            channel.read(arrayBuffer, this, readHandler);
+        }
+
+        // Тело сообщения читается в файл после четырёх байт, в которые потом запишется длина ответа.
+        // Тело ответа RawCodec устроено так же, как тело запроса, поэтому файл после сортировки уходит целиком
+        private void readSpill(int size) throws IOException {
+            if (size < Integer.BYTES || size % Integer.BYTES != 0) {
+                throw new IOException("Wrong message size: " + size);
+            }
+            spillFile = MappedFile.create(Integer.BYTES + (long) size, spillSegmentShift);
+            spillBuffers = spillFile.byteBuffers();
+            spillBuffers[0].position(Integer.BYTES);
+            readStart = System.nanoTime();
+            readSpillBuffers();
+        }
+
+        // Файл недочитанного сообщения. Чтение в него уже завершилось, так что отображение можно снять
+        private void closeSpill() {
+            if (spillFile != null) {
+                spillFile.close();
+                spillFile = null;
+                spillBuffers = null;
+            }
+        }
+
+        private void readSpillBuffers() {
+            channel.read(spillBuffers, 0, spillBuffers.length, 0, TimeUnit.MILLISECONDS, this, spillReadHandler);
+        }
+
+        private void processSpilled(MappedFile file) {
+            endStage(Stage.READ, readStart);
+            spilled.increment();
+            int id = file.getInt(Integer.BYTES);
+            long count = file.size() / Integer.BYTES - 2;
+            clientInFlight.incrementAndGet();
+            switch (admit()) {
+                case REJECTED -> {
+                    rejected.increment();
+                    file.close();
+                    write(codec.write(new IntArray(id, new int[0]), bufferPool), 0, 0, true, true);
+                    return;
+                }
+                case CLOSED -> {
+                    file.close();
+                    return;
+                }
+            }
+            long start = startMeasure();
+            peakWorkerQueue.accumulate(workerPool.getQueueSize());
+            workerPool.execute(clientId, () -> {
+                long sortStart = endStage(Stage.QUEUE, start);
+                MappedFile sorted;
+                try {
+                    sorted = ExternalSort.sort(file, 2L * Integer.BYTES, count, sortEngine,
+                            ExternalSort.DEFAULT_RUN_LENGTH);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    file.close();
+                    close();
+                    return;
+                }
+                if (sorted != file) {
+                    file.close();
+                }
+                // Длина в протоколе big-endian, а файл little-endian
+                sorted.putInt(0, Integer.reverseBytes((int) (sorted.size() - Integer.BYTES)));
+                write(null, start, endStage(Stage.SORT, sortStart), false, true, sorted);
+            });
+        }
+
         public ClientHandler(AsynchronousSocketChannel channel, int clientId) {
             this.channel = channel;
             this.clientId = clientId;
         }
 
-        public void write(ByteBuffer buffer, int id) {
-            queue.lock();
-            try {
-                writeData.outputs.add(new Pair<>(buffer, id));
-                if (writeData.writeWorking.compareAndSet(false, true)) {
-                    channel.write(writeData.getNextOutput(), writeData, writeHandler);
+        public void write(ByteBuffer buffer, long start, long queued, boolean rejected, boolean last) {
+            write(buffer, start, queued, rejected, last, null);
+        }
+
+        // Если клиент закроется раньше, чем ответ уйдёт, буферы и файл освободит discard
+        public void write(ByteBuffer buffer, long start, long queued, boolean rejected, boolean last,
+                          MappedFile mapping) {
+            writeData.outputs.offer(new Output(buffer, start, queued, rejected, last, mapping));
+            startWriting();
+        }
+
+        // Каждый, кто добавил ответ, после этого пытается начать запись, поэтому ответ не может потеряться.
+        // У закрытого клиента вместо записи освобождаются ответы в очереди
+        private void startWriting() {
+            while (writeData.writeWorking.compareAndSet(false, true)) {
+                if (closed.get()) {
+                    writeData.discard();
+                } else {
+                    writeData.collectBatch();
+                    if (writeData.batchSize > 0) {
+                        writeData.writeBatch();
+                        return;
+                    }
+                }
+                writeData.writeWorking.set(false);
+                if (writeData.outputs.isEmpty()) {
+                    return;
                 }
-            } finally {
-                queue.unlock();
             }
         }
 
+        // Если клиент исчерпал свой лимит, чтение приостанавливается до отправки его ответов
+        public void readNext() {
+            if (clientInFlight.get() < maxClientInFlight) {
+                channel.read(sizeBuffer, this, readHandler);
+                return;
+            }
+            paused.set(true);
+            readPauses.increment();
+            // Ответы могли уйти, пока ставили флаг, тогда их освобождение его не увидело
+            tryResume();
+        }
+
+        // Чтение возобновляет ровно один поток, снявший флаг
+        public void tryResume() {
+            if (paused.get() && !closed.get() && clientInFlight.get() < maxClientInFlight
+                    && paused.compareAndSet(true, false)) {
+                channel.read(sizeBuffer, this, readHandler);
+            }
+        }
+
+        // Занимает место под тело запроса или ставит клиента в очередь, тогда тело прочитает slotGranted
+        private boolean acquireOrWait() {
+            if (acquireSlot()) {
+                slotHeld.set(true);
+                return true;
+            }
+            readPauses.increment();
+            waitingClients.add(this);
+            // Место могло освободиться до постановки в очередь
+            grantWaiting();
+            return false;
+        }
+
+        private void slotGranted() {
+            slotHeld.set(true);
+            // Закрытие могло не увидеть место, тогда его освобождаем мы
+            if (closed.get()) {
+                if (slotHeld.getAndSet(false)) {
+                    release();
+                }
+                return;
+            }
+            readBody();
+        }
+
+        // Место, занятое под тело (или в режиме отказов - свободное), переходит к прочитанному запросу
+        private Admission admit() {
+            if (rejectOverload) {
+                int current = inFlight.incrementAndGet();
+                if (current > maxInFlight) {
+                    inFlight.decrementAndGet();
+                    return Admission.REJECTED;
+                }
+                peakInFlight.accumulate(current);
+            } else if (!slotHeld.getAndSet(false)) {
+                // Место уже освободил close()
+                return Admission.CLOSED;
+            }
+            admitted.incrementAndGet();
+            return closedWhileAdmitting() ? Admission.CLOSED : Admission.ADMITTED;
+        }
+
+        // Запись, завершившаяся ошибкой, могла закрыть клиента одновременно с чтением. Если close() уже
+        // освободил занятые места до нашего инкремента, освобождаем своё сами, иначе оно потеряется
+        private boolean closedWhileAdmitting() {
+            if (!closed.get()) {
+                return false;
+            }
+            if (admitted.getAndUpdate(count -> Math.max(count - 1, 0)) > 0) {
+                release();
+            }
+            return true;
+        }
+
+        private void responseSent(boolean wasAdmitted) {
+            clientInFlight.decrementAndGet();
+            if (wasAdmitted && admitted.getAndUpdate(count -> Math.max(count - 1, 0)) > 0) {
+                release();
+            }
+            tryResume();
+        }
+
         public void close() {
             if (closed.compareAndSet(false, true)) {
+                // Ответы закрытому клиенту уже не уйдут, освобождаем занятое ими место
+                for (int count = admitted.getAndSet(0); count > 0; count--) {
+                    release();
+                }
+                if (slotHeld.getAndSet(false)) {
+                    release();
+                }
                 stopCollectingStatistics();
                 try {
                     if (channel.isOpen()) {
@@ -201,6 +696,8 @@ public class AsynchronousServer extends Server {
                 } catch (IOException ignored) {
 
                 }
+                // Если запись сейчас выполняется, очередь освободит её обработчик ошибки
+                startWriting();
             }
         }
     }
@@ -1,31 +1,93 @@
 package ru.java.hse.server;
 
+import ru.java.hse.Constants;
 import ru.java.hse.Utils;
+import ru.java.hse.codec.MessageCodec;
+import ru.java.hse.codec.ProtobufCodec;
 import ru.java.hse.message.IntArray;
+import ru.java.hse.sort.BubbleSortEngine;
+import ru.java.hse.sort.SortEngine;
+import ru.java.hse.sort.SortedChunks;
+import ru.java.hse.worker.FixedWorkerPool;
+import ru.java.hse.worker.WorkerPool;
 
-import java.io.IOException;
+import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class BlockingServer extends Server {
     private ExecutorService serverSocketService;
     private ConcurrentLinkedQueue<ClientData> clients;
-    private ExecutorService workerThreadPool;
     private ServerSocket serverSocket;
 
+    // Смысл полей описан в ServerOptions
+    private final int writerThreads;
+    private final int chunkSize;
+    private ExecutorService sharedWriterPool;
+
+    // Учитываем только потоки соединений (читатель и свой писатель), общие пулы от числа клиентов не зависят
+    private final AtomicInteger liveThreads = new AtomicInteger();
+    private final AtomicInteger peakThreads = new AtomicInteger();
+    private final ThreadFactory connectionThreadFactory = runnable -> {
+        peakThreads.accumulateAndGet(liveThreads.incrementAndGet(), Math::max);
+        return new Thread(() -> {
+            try {
+                runnable.run();
+            } finally {
+                liveThreads.decrementAndGet();
+            }
+        });
+    };
+    private volatile int connections;
+    // Потоки соединений прошлого запуска, которые ещё не завершились
+    private volatile int baseThreads;
+    private volatile long baseMemory;
+    private volatile long peakMemory;
+
     private volatile boolean isWorking;
 
+    public BlockingServer() {
+        this(new ProtobufCodec(), new BubbleSortEngine());
+    }
+
+    public BlockingServer(MessageCodec codec, SortEngine sortEngine) {
+        this(codec, sortEngine, new FixedWorkerPool());
+    }
+
+    public BlockingServer(MessageCodec codec, SortEngine sortEngine, WorkerPool workerPool) {
+        this(codec, sortEngine, workerPool, ServerOptions.DEFAULT);
+    }
+
+    public BlockingServer(MessageCodec codec, SortEngine sortEngine, WorkerPool workerPool, ServerOptions options) {
+        super(codec, sortEngine, workerPool);
+        writerThreads = options.writerThreads();
+        chunkSize = options.chunkSize();
+    }
+
     public void start(int port) throws ServerException {
-        workerThreadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() - 2);
+        workerPool.start(Executors.defaultThreadFactory());
+        if (writerThreads > 0) {
+            sharedWriterPool = Executors.newFixedThreadPool(writerThreads);
+        }
         clients = new ConcurrentLinkedQueue<>();
         serverSocketService = Executors.newSingleThreadExecutor();
+        connections = 0;
+        baseThreads = liveThreads.get();
+        peakThreads.set(baseThreads);
+        baseMemory = Utils.getResidentMemory();
+        peakMemory = baseMemory;
         isWorking = true;
         try {
-            serverSocket = new ServerSocket(port);
+            serverSocket = new ServerSocket(port, Constants.BACKLOG);
         } catch (IOException e) {
             throw new ServerException(e);
         }
@@ -34,16 +96,35 @@ public class BlockingServer extends Server {
 
     public void shutdown() {
         isWorking = false;
+        // Память, выделенная соединениями после подключения, видна только здесь
+        updatePeakMemory();
         serverSocketService.shutdown();
-        workerThreadPool.shutdown();
+        workerPool.shutdown();
+        sortEngine.shutdown();
+        if (sharedWriterPool != null) {
+            sharedWriterPool.shutdown();
+        }
         clients.forEach(ClientData::close);
         try {
             serverSocket.close();
-        } catch (IOException e) {
+            // Сокет, заблокированный в accept, окончательно закрывает принимающий поток, иначе порт ещё занят
+            serverSocketService.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (IOException | InterruptedException e) {
             e.printStackTrace();
         }
     }
 
+    @Override
+    public Map<String, Number> getCounters() {
+        Map<String, Number> counters = super.getCounters();
+        counters.put("threadsPerConnection", connections == 0 ? 0 : (double) (peakThreads.get() - baseThreads) / connections);
+        // Память считается по всему процессу, поэтому клиенты в том же процессе тоже попадают в неё
+        if (baseMemory >= 0) {
+            counters.put("rssPerConnection", connections == 0 ? 0 : (peakMemory - baseMemory) / connections);
+        }
+        return counters;
+    }
+
     private void acceptClients(ServerSocket serverSocket) {
         try (ServerSocket ignored = serverSocket) {
             while (isWorking) {
@@ -51,15 +132,33 @@ public class BlockingServer extends Server {
                 ClientData clientData = new ClientData(socket);
                 clients.add(clientData);
                 clientData.processClient();
+                connections++;
+                updatePeakMemory();
             }
         } catch (IOException ignored) {
         }
     }
 
+    private void updatePeakMemory() {
+        if (baseMemory >= 0) {
+            peakMemory = Math.max(peakMemory, Utils.getResidentMemory());
+        }
+    }
+
+    private record Response(IntArray array, long queued) {}
+
     private class ClientData {
         private final Socket socket;
-        private final ExecutorService responseWriter = Executors.newSingleThreadExecutor();
-        private final ExecutorService requestReader = Executors.newSingleThreadExecutor();
+        private final DataInputStream inputStream;
+        private final OutputStream outputStream;
+        private final ExecutorService responseWriter;
+        private final ExecutorService requestReader = Executors.newSingleThreadExecutor(connectionThreadFactory);
+
+        // Очередь ответов для общего пула писателей, обрабатывается не более чем одним потоком одновременно
+        private final MpscQueue<Response> outputs = new MpscQueue<>();
+        private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+        // Ответы кодируются в один буфер соединения, ответы одного клиента пишет не больше одного потока
+        private ByteBuffer responseBuffer;
 
         private final int clientId;
         private final AtomicBoolean closed = new AtomicBoolean(false);
@@ -67,30 +166,92 @@ public class BlockingServer extends Server {
 
         public ClientData(Socket socket) throws IOException {
             this.socket = socket;
+            inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            // Каждый ответ уходит одним вызовом write, буферизация потока дала бы лишнее копирование
+            outputStream = socket.getOutputStream();
+            responseWriter = sharedWriterPool == null ? Executors.newSingleThreadExecutor(connectionThreadFactory) : null;
             clientId = currentClientId++;
         }
 
-        public void sendResponse(IntArray array) {
+        public void sendResponse(IntArray array, long queued) {
+            if (responseWriter == null) {
+                outputs.offer(new Response(array, queued));
+                scheduleWrites();
+                return;
+            }
             responseWriter.submit(() -> {
                 try {
-                    Utils.writeArray(socket.getOutputStream(), array);
+                    writeResponse(array, queued);
                 } catch (IOException ignored) {
                     stopCollectingStatistics();
                 }
             });
         }
 
+        // Сортировка замеряется для каждого куска отдельно, сортировка блоков попадает в первый
+        private void sendChunks(IntArray data, long sortStart) {
+            SortedChunks chunks = new SortedChunks(data.data(), sortEngine, chunkSize);
+            long chunkStart = sortStart;
+            while (chunks.hasNext()) {
+                int[] chunk = chunks.next();
+                chunkStart = endStage(Stage.SORT, chunkStart);
+                sendResponse(new IntArray(data.id(), chunk), chunkStart);
+            }
+        }
+
+        // Кодирование и запись разделены, чтобы замерить их по отдельности
+        private void writeResponse(IntArray array, long queued) throws IOException {
+            long encodeStart = endStage(Stage.WRITE_QUEUE, queued);
+            responseBuffer = codec.write(array, responseBuffer);
+            long writeStart = endStage(Stage.ENCODE, encodeStart);
+            outputStream.write(responseBuffer.array(), responseBuffer.arrayOffset() + responseBuffer.position(),
+                    responseBuffer.remaining());
+            endStage(Stage.WRITE, writeStart);
+        }
+
+        private void scheduleWrites() {
+            if (writeScheduled.compareAndSet(false, true)) {
+                sharedWriterPool.submit(this::writeResponses);
+            }
+        }
+
+        private void writeResponses() {
+            try {
+                Response response;
+                while ((response = outputs.poll()) != null) {
+                    writeResponse(response.array(), response.queued());
+                }
+            } catch (IOException ignored) {
+                stopCollectingStatistics();
+            } finally {
+                writeScheduled.set(false);
+                if (!outputs.isEmpty()) {
+                    scheduleWrites();
+                }
+            }
+        }
+
         public void processClient() {
             requestReader.submit(() -> {
                 try {
                     while (working) {
-                        IntArray data = Utils.readArray(socket.getInputStream());
-                        final int id = data.id();
-                        startMeasure(id, clientId);
-                        workerThreadPool.submit(() -> {
-                            IntArray newData = IntArray.sort(data);
-                            sendResponse(newData);
-                            endMeasure(id, clientId);
+                        // Ожидание следующего запроса в этап чтения не входит
+                        byte[] bytes = new byte[inputStream.readInt()];
+                        long readStart = System.nanoTime();
+                        inputStream.readFully(bytes);
+                        long decodeStart = endStage(Stage.READ, readStart);
+                        IntArray data = codec.read(ByteBuffer.wrap(bytes));
+                        endStage(Stage.DECODE, decodeStart);
+                        final long start = startMeasure();
+                        workerPool.execute(clientId, () -> {
+                            long sortStart = endStage(Stage.QUEUE, start);
+                            if (chunkSize > 0) {
+                                sendChunks(data, sortStart);
+                            } else {
+                                IntArray newData = IntArray.sort(data, sortEngine);
+                                sendResponse(newData, endStage(Stage.SORT, sortStart));
+                            }
+                            endMeasure(start);
                         });
                     }
                 } catch (IOException ignored) {
@@ -104,7 +265,9 @@ public class BlockingServer extends Server {
         public void close() {
             if (closed.compareAndSet(false, true)) {
                 working = false;
-                responseWriter.shutdown();
+                if (responseWriter != null) {
+                    responseWriter.shutdown();
+                }
                 requestReader.shutdown();
                 if (!socket.isClosed()) {
                     try {
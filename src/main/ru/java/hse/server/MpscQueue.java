@@ -0,0 +1,51 @@
+package ru.java.hse.server;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// Очередь без блокировок для многих писателей и одного читателя (MPSC-очередь Вьюкова). Писатель делает
+// один getAndSet хвоста, читателю атомарные операции не нужны. Читатели могут сменяться, если между ними
+// есть другая синхронизация
+class MpscQueue<T> {
+    private static class Node<T> {
+        private T value;
+        private volatile Node<T> next;
+
+        Node(T value) {
+            this.value = value;
+        }
+    }
+
+    private final AtomicReference<Node<T>> tail;
+    private Node<T> head;
+
+    MpscQueue() {
+        head = new Node<>(null);
+        tail = new AtomicReference<>(head);
+    }
+
+    public void offer(T value) {
+        Node<T> node = new Node<>(value);
+        tail.getAndSet(node).next = node;
+    }
+
+    public T peek() {
+        Node<T> next = head.next;
+        return next == null ? null : next.value;
+    }
+
+    public T poll() {
+        Node<T> next = head.next;
+        if (next == null) {
+            return null;
+        }
+        T value = next.value;
+        next.value = null;
+        head = next;
+        return value;
+    }
+
+    // Элемент, который ещё не до конца добавлен, может быть не виден
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+}
@@ -0,0 +1,254 @@
+package ru.java.hse.server;
+
+import ru.java.hse.Constants;
+import ru.java.hse.codec.MessageCodec;
+import ru.java.hse.message.IntArray;
+import ru.java.hse.sort.SortEngine;
+import ru.java.hse.worker.WorkerPool;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class NonBlockingServer extends Server {
+    private ExecutorService selectorService;
+    private ServerSocketChannel serverSocketChannel;
+    private Selector selector;
+    private Queue<ClientHandler> writeRequests;
+
+    private volatile boolean isWorking;
+
+    public NonBlockingServer() {
+        super();
+    }
+
+    public NonBlockingServer(MessageCodec codec, SortEngine sortEngine) {
+        super(codec, sortEngine);
+    }
+
+    public NonBlockingServer(MessageCodec codec, SortEngine sortEngine, WorkerPool workerPool) {
+        super(codec, sortEngine, workerPool);
+    }
+
+    @Override
+    public void start(int port) throws ServerException {
+        workerPool.start(Executors.defaultThreadFactory());
+        writeRequests = new ConcurrentLinkedQueue<>();
+        try {
+            selector = Selector.open();
+            serverSocketChannel = ServerSocketChannel.open();
+            serverSocketChannel.bind(new InetSocketAddress(port), Constants.BACKLOG);
+            serverSocketChannel.configureBlocking(false);
+            serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new ServerException(e);
+        }
+        isWorking = true;
+        selectorService = Executors.newSingleThreadExecutor();
+        selectorService.execute(this::processSelector);
+    }
+
+    @Override
+    public void shutdown() {
+        isWorking = false;
+        selector.wakeup();
+        selectorService.shutdown();
+        workerPool.shutdown();
+        sortEngine.shutdown();
+        try {
+            // Клиентов закрывает поток селектора, дожидаемся его, чтобы не задеть статистику следующего запуска
+            selectorService.awaitTermination(1, TimeUnit.MINUTES);
+            serverSocketChannel.close();
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void processSelector() {
+        try (Selector ignored = selector) {
+            while (isWorking) {
+                selector.select();
+                registerWrites();
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        // Ошибка при подключении (например, кончились дескрипторы) не должна останавливать
+                        // единственный поток селектора, пропускаем это подключение
+                        try {
+                            acceptClient();
+                        } catch (IOException skipped) {
+                        }
+                        continue;
+                    }
+                    ClientHandler client = (ClientHandler) key.attachment();
+                    // Некорректный размер сообщения или отказ пула воркеров при остановке закрывают только клиента
+                    try {
+                        if (key.isReadable()) {
+                            client.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            client.write();
+                        }
+                    } catch (RuntimeException e) {
+                        client.close();
+                    }
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof ClientHandler client) {
+                    client.close();
+                }
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void acceptClient() throws IOException {
+        SocketChannel channel = serverSocketChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.configureBlocking(false);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new ClientHandler(channel, key, currentClientId++));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Ключи можно менять только из потока селектора, поэтому воркеры оставляют заявки в очереди
+    private void registerWrites() {
+        ClientHandler client;
+        while ((client = writeRequests.poll()) != null) {
+            if (client.key.isValid()) {
+                client.key.interestOps(client.key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    private class ClientHandler {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final int clientId;
+        private final ByteBuffer sizeBuffer = ByteBuffer.allocate(Integer.BYTES);
+        private ByteBuffer arrayBuffer;
+        private boolean readingSize = true;
+
+        private final Queue<Output> outputs = new ConcurrentLinkedQueue<>();
+        private ByteBuffer currentBuffer;
+        private long currentStart;
+
+        private boolean closed = false;
+
+        private record Output(ByteBuffer buffer, long start) {}
+
+        public ClientHandler(SocketChannel channel, SelectionKey key, int clientId) {
+            this.channel = channel;
+            this.key = key;
+            this.clientId = clientId;
+        }
+
+        public void read() {
+            try {
+                while (true) {
+                    if (readingSize) {
+                        if (channel.read(sizeBuffer) < 0) {
+                            close();
+                            return;
+                        }
+                        if (sizeBuffer.hasRemaining()) {
+                            return;
+                        }
+                        // Начинаем читать сообщение
+                        sizeBuffer.flip();
+                        int size = sizeBuffer.getInt();
+                        sizeBuffer.clear();
+                        arrayBuffer = ByteBuffer.allocate(size);
+                        readingSize = false;
+                    }
+                    if (channel.read(arrayBuffer) < 0) {
+                        close();
+                        return;
+                    }
+                    if (arrayBuffer.hasRemaining()) {
+                        return;
+                    }
+                    readingSize = true;
+                    processTask(arrayBuffer);
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        private void processTask(ByteBuffer dataBuffer) throws IOException {
+            dataBuffer.flip();
+            IntArray data = codec.read(dataBuffer);
+            long start = startMeasure();
+            workerPool.execute(clientId, () -> {
+                IntArray newData = IntArray.sort(data, sortEngine);
+                addOutput(codec.write(newData), start);
+            });
+        }
+
+        private void addOutput(ByteBuffer buffer, long start) {
+            outputs.add(new Output(buffer, start));
+            writeRequests.add(this);
+            selector.wakeup();
+        }
+
+        public void write() {
+            try {
+                while (true) {
+                    if (currentBuffer == null) {
+                        var next = outputs.poll();
+                        if (next == null) {
+                            key.interestOps(SelectionKey.OP_READ);
+                            return;
+                        }
+                        currentBuffer = next.buffer;
+                        currentStart = next.start;
+                    }
+                    channel.write(currentBuffer);
+                    if (currentBuffer.hasRemaining()) {
+                        return;
+                    }
+                    endMeasure(currentStart);
+                    currentBuffer = null;
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            stopCollectingStatistics();
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package ru.java.hse.server;
+
+import ru.java.hse.Histogram;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+// Сервер, запущенный в другом процессе (ServerLauncher), управляется через отдельный сокет.
+// Как и локальные серверы, объект рассчитан на один запуск: shutdown закрывает управляющее соединение
+public class RemoteServer extends Server {
+    public static final String START = "START";
+    public static final String STOP = "STOP";
+    public static final String QUIT = "QUIT";
+    public static final String OK = "OK";
+
+    private static final int CONNECT_ATTEMPTS = 100;
+    private static final long CONNECT_DELAY_MILLIS = 100;
+
+    private final int controlPort;
+    // Настройки сервера как key=value, их разбирает ServerLauncher
+    private final Properties config;
+
+    private Socket control;
+    private DataInputStream input;
+    private DataOutputStream output;
+
+    private Histogram histogram = new Histogram();
+    private Map<Stage, Histogram> stages = new EnumMap<>(Stage.class);
+    private Map<String, Number> counters = new LinkedHashMap<>();
+
+    public RemoteServer(int controlPort, Properties config) {
+        this.controlPort = controlPort;
+        this.config = config;
+    }
+
+    @Override
+    public void start(int port) throws ServerException {
+        try {
+            connect();
+            output.writeUTF(START);
+            StringWriter properties = new StringWriter();
+            config.store(properties, null);
+            output.writeUTF(properties.toString());
+            output.writeInt(port);
+            output.flush();
+            String reply = input.readUTF();
+            if (!reply.equals(OK)) {
+                throw new ServerException(reply);
+            }
+        } catch (IOException e) {
+            throw new ServerException(e);
+        }
+    }
+
+    // Если start не смог подключиться, останавливать нечего: исключение start важнее
+    @Override
+    public void shutdown() {
+        try {
+            if (output == null) {
+                return;
+            }
+            output.writeUTF(STOP);
+            output.flush();
+            histogram = Histogram.readFrom(input);
+            stages = new EnumMap<>(Stage.class);
+            for (Stage stage : Stage.values()) {
+                stages.put(stage, Histogram.readFrom(input));
+            }
+            counters = new LinkedHashMap<>();
+            int size = input.readInt();
+            for (int i = 0; i < size; i++) {
+                String name = input.readUTF();
+                String value = input.readUTF();
+                Number number;
+                if (value.contains(".") || value.contains("E")) {
+                    number = Double.parseDouble(value);
+                } else {
+                    number = Long.parseLong(value);
+                }
+                counters.put(name, number);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            disconnect();
+        }
+    }
+
+    // Освобождает управляющее соединение, процесс сервера переходит к следующему генератору
+    public void disconnect() {
+        if (control == null) {
+            return;
+        }
+        try {
+            control.close();
+        } catch (IOException ignored) {
+        }
+        control = null;
+        input = null;
+        output = null;
+    }
+
+    // Просит процесс сервера завершиться
+    public static void quit(int controlPort) {
+        RemoteServer server = new RemoteServer(controlPort, new Properties());
+        try {
+            server.connect();
+            server.output.writeUTF(QUIT);
+            server.output.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        server.disconnect();
+    }
+
+    // Читает настройки, отправленные start
+    public static Properties readConfig(DataInputStream input) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new StringReader(input.readUTF()));
+        return properties;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        histogram = new Histogram();
+        stages = new EnumMap<>(Stage.class);
+        counters = new LinkedHashMap<>();
+    }
+
+    @Override
+    public Histogram getHistogram() {
+        return histogram;
+    }
+
+    @Override
+    public long getAverageTime() {
+        return (long) histogram.getMean() / 1000;
+    }
+
+    @Override
+    public Map<Stage, Histogram> getStageHistograms() {
+        Map<Stage, Histogram> histograms = new EnumMap<>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, stages.getOrDefault(stage, new Histogram()));
+        }
+        return histograms;
+    }
+
+    @Override
+    public Map<String, Number> getCounters() {
+        return new LinkedHashMap<>(counters);
+    }
+
+    // Процесс сервера может ещё запускаться, поэтому пробуем подключиться несколько раз
+    private void connect() throws IOException {
+        if (control != null) {
+            return;
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                control = new Socket("localhost", controlPort);
+                break;
+            } catch (ConnectException e) {
+                if (attempt == CONNECT_ATTEMPTS) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(CONNECT_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    throw new IOException(interrupted);
+                }
+            }
+        }
+        input = new DataInputStream(control.getInputStream());
+        output = new DataOutputStream(control.getOutputStream());
+    }
+}
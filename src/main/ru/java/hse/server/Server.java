@@ -1,42 +1,103 @@
 package ru.java.hse.server;
 
+import ru.java.hse.Histogram;
 import ru.java.hse.Stats;
+import ru.java.hse.codec.MessageCodec;
+import ru.java.hse.codec.ProtobufCodec;
+import ru.java.hse.sort.BubbleSortEngine;
+import ru.java.hse.sort.CachingSortEngine;
+import ru.java.hse.sort.SortEngine;
+import ru.java.hse.worker.FixedWorkerPool;
+import ru.java.hse.worker.WorkerPool;
 
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class Server {
-    private final Map<IntegerPair, Long> startsMeasurement = new ConcurrentHashMap<>();
     private final Stats statistic = new Stats();
+    private final Map<Stage, Stats> stageStatistics = new EnumMap<>(Stage.class);
+    protected final MessageCodec codec;
+    protected final SortEngine sortEngine;
+    protected final WorkerPool workerPool;
     protected int currentClientId = 0;
 
-    private record IntegerPair(int first, int second) {}
+    protected Server() {
+        this(new ProtobufCodec(), new BubbleSortEngine());
+    }
+
+    protected Server(MessageCodec codec, SortEngine sortEngine) {
+        this(codec, sortEngine, new FixedWorkerPool());
+    }
+
+    protected Server(MessageCodec codec, SortEngine sortEngine, WorkerPool workerPool) {
+        this.codec = codec;
+        this.sortEngine = sortEngine;
+        this.workerPool = workerPool;
+        for (Stage stage : Stage.values()) {
+            stageStatistics.put(stage, new Stats());
+        }
+    }
 
     abstract public void start(int port) throws ServerException;
 
     abstract public void shutdown();
 
-    protected void startMeasure(int id, int clientId) {
-        startsMeasurement.put(new IntegerPair(id, clientId), System.currentTimeMillis());
+    // Время начала хранится в самой задаче, поэтому замер ничего не аллоцирует
+    protected long startMeasure() {
+        return System.nanoTime();
+    }
+
+    protected void endMeasure(long start) {
+        statistic.addMeasurement(System.nanoTime() - start);
     }
 
-    protected void endMeasure(int id, int clientId) {
-        long start = startsMeasurement.get(new IntegerPair(id, clientId));
-        statistic.addMeasurement(System.currentTimeMillis() - start);
+    protected void recordStage(Stage stage, long start, long end) {
+        stageStatistics.get(stage).addMeasurement(end - start);
+    }
+
+    // Возвращает момент окончания этапа, с него можно начинать следующий
+    protected long endStage(Stage stage, long start) {
+        long end = System.nanoTime();
+        recordStage(stage, start, end);
+        return end;
     }
 
     public void reset() {
-        startsMeasurement.clear();
         statistic.reset();
+        stageStatistics.values().forEach(Stats::reset);
         currentClientId = 0;
     }
 
     protected void stopCollectingStatistics() {
         statistic.stop();
+        stageStatistics.values().forEach(Stats::stop);
     }
 
     public long getAverageTime() {
         return statistic.getAverage();
     }
 
+    public Histogram getHistogram() {
+        return statistic.getHistogram();
+    }
+
+    // Этапы, которые сервер не замеряет, остаются пустыми
+    public Map<Stage, Histogram> getStageHistograms() {
+        Map<Stage, Histogram> histograms = new EnumMap<>(Stage.class);
+        stageStatistics.forEach((stage, stats) -> histograms.put(stage, stats.getHistogram()));
+        return histograms;
+    }
+
+    // Дополнительные счётчики архитектуры, выводятся вместе с задержками
+    public Map<String, Number> getCounters() {
+        Map<String, Number> counters = new LinkedHashMap<>();
+        if (sortEngine instanceof CachingSortEngine cache) {
+            counters.put("cacheHitRate", cache.getHitRate());
+            counters.put("cacheBytes", cache.getBytes());
+            counters.put("cacheEvictions", cache.getEvictions());
+        }
+        return counters;
+    }
+
 }
@@ -0,0 +1,18 @@
+package ru.java.hse.server;
+
+// Настройки блокирующего и асинхронного серверов, каждый читает только те, что поддерживает.
+// maxClientInFlight, maxInFlight - сколько запросов одного клиента и всех клиентов асинхронный сервер держит
+// от чтения тела до отправки ответа; rejectOverload - отвечать отказом вместо того, чтобы ждать места.
+// chunkSize - если больше нуля, ответ уходит кусками по стольку элементов (см. SortedChunks).
+// spillBytes - асинхронный сервер сортирует сообщения больше стольких байт в отображённом файле, 0 - никогда.
+// writerThreads - если больше нуля, ответы блокирующего сервера пишет общий пул из стольких потоков
+public record ServerOptions(int maxClientInFlight, int maxInFlight, boolean rejectOverload, int chunkSize,
+                            long spillBytes, int writerThreads) {
+    public static final int DEFAULT_MAX_CLIENT_IN_FLIGHT = 64;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4096;
+    // Больше самого крупного класса пула буферов
+    public static final long DEFAULT_SPILL_BYTES = 1L << 26;
+
+    public static final ServerOptions DEFAULT = new ServerOptions(DEFAULT_MAX_CLIENT_IN_FLIGHT, DEFAULT_MAX_IN_FLIGHT,
+            false, 0, DEFAULT_SPILL_BYTES, 0);
+}
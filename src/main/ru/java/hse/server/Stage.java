@@ -0,0 +1,27 @@
+package ru.java.hse.server;
+
+// Этапы обработки запроса на сервере, каждый замеряется отдельно
+public enum Stage {
+    // От получения длины до прочтения всего тела сообщения
+    READ("read"),
+    DECODE("decode"),
+    // Ожидание в очереди пула воркеров
+    QUEUE("queue"),
+    SORT("sort"),
+    ENCODE("encode"),
+    // Ожидание готового ответа в очереди на запись
+    WRITE_QUEUE("writeQueue"),
+    // От начала записи ответа в сокет до её окончания
+    WRITE("write");
+
+    private final String name;
+
+    Stage(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
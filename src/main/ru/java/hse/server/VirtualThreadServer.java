@@ -0,0 +1,142 @@
+package ru.java.hse.server;
+
+import ru.java.hse.Constants;
+import ru.java.hse.codec.MessageCodec;
+import ru.java.hse.message.IntArray;
+import ru.java.hse.sort.SortEngine;
+import ru.java.hse.worker.WorkerPool;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class VirtualThreadServer extends Server {
+    private ExecutorService virtualThreads;
+    private ConcurrentLinkedQueue<ClientData> clients;
+    private ServerSocket serverSocket;
+
+    private volatile boolean isWorking;
+
+    public VirtualThreadServer() {
+        super();
+    }
+
+    public VirtualThreadServer(MessageCodec codec, SortEngine sortEngine) {
+        super(codec, sortEngine);
+    }
+
+    public VirtualThreadServer(MessageCodec codec, SortEngine sortEngine, WorkerPool workerPool) {
+        super(codec, sortEngine, workerPool);
+    }
+
+    @Override
+    public void start(int port) throws ServerException {
+        workerPool.start(Executors.defaultThreadFactory());
+        clients = new ConcurrentLinkedQueue<>();
+        virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+        isWorking = true;
+        try {
+            serverSocket = new ServerSocket(port, Constants.BACKLOG);
+        } catch (IOException e) {
+            throw new ServerException(e);
+        }
+        virtualThreads.submit(() -> acceptClients(serverSocket));
+    }
+
+    @Override
+    public void shutdown() {
+        isWorking = false;
+        virtualThreads.shutdown();
+        workerPool.shutdown();
+        sortEngine.shutdown();
+        clients.forEach(ClientData::close);
+        try {
+            serverSocket.close();
+            // Принимающий поток окончательно закрывает сокет, дожидаемся его, чтобы освободить порт
+            virtualThreads.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void acceptClients(ServerSocket serverSocket) {
+        try (ServerSocket ignored = serverSocket) {
+            while (isWorking) {
+                Socket socket = serverSocket.accept();
+                ClientData clientData = new ClientData(socket);
+                clients.add(clientData);
+                clientData.processClient();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    private class ClientData {
+        private final Socket socket;
+        // synchronized закрепляет виртуальный поток за несущим, поэтому используем ReentrantLock
+        private final Lock writeLock = new ReentrantLock();
+        // Переиспользуется всеми ответами клиента, доступ под writeLock
+        private ByteBuffer responseBuffer;
+
+        private final int clientId;
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        private volatile boolean working = true;
+
+        public ClientData(Socket socket) {
+            this.socket = socket;
+            clientId = currentClientId++;
+        }
+
+        public void sendResponse(IntArray array, long start) {
+            virtualThreads.submit(() -> {
+                writeLock.lock();
+                try {
+                    responseBuffer = codec.write(array, responseBuffer);
+                    socket.getOutputStream().write(responseBuffer.array(),
+                            responseBuffer.arrayOffset() + responseBuffer.position(), responseBuffer.remaining());
+                    endMeasure(start);
+                } catch (IOException ignored) {
+                    stopCollectingStatistics();
+                } finally {
+                    writeLock.unlock();
+                }
+            });
+        }
+
+        public void processClient() {
+            virtualThreads.submit(() -> {
+                try {
+                    while (working) {
+                        IntArray data = codec.read(socket.getInputStream());
+                        long start = startMeasure();
+                        workerPool.execute(clientId, () -> sendResponse(IntArray.sort(data, sortEngine), start));
+                    }
+                } catch (IOException ignored) {
+                } finally {
+                    stopCollectingStatistics();
+                    close();
+                }
+            });
+        }
+
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                working = false;
+                if (!socket.isClosed()) {
+                    try {
+                        socket.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ru.java.hse.sort;
+
+public class BubbleSortEngine implements SortEngine {
+    @Override
+    public void sort(int[] data) {
+        for (int j = 0; j < data.length - 1; j++) {
+            for (int i = 0; i < data.length - 1; i++) {
+                if (data[i] > data[i + 1]) {
+                    int t = data[i + 1];
+                    data[i + 1] = data[i];
+                    data[i] = t;
+                }
+            }
+        }
+    }
+}
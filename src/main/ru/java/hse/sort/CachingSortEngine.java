@@ -0,0 +1,114 @@
+package ru.java.hse.sort;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+// Запоминает отсортированные результаты недавних массивов и отдаёт их для таких же входов без сортировки.
+// Ключ - 64-битный хеш содержимого и длины, попадание засчитывается, только если сохранённый вход совпал
+// с запрошенным. Вытесняется давно не использованный результат, объём ограничен байтами массивов.
+// Под блокировкой только операции с картой, хеш, сравнение и копирование массивов идут снаружи
+public class CachingSortEngine implements SortEngine {
+    // Заголовки двух массивов, Long, записи и узла LinkedHashMap
+    private static final long ENTRY_OVERHEAD = 112;
+
+    private final SortEngine base;
+    private final long capacityBytes;
+    private final ToLongFunction<int[]> hash;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // Вход хранится целиком, чтобы отличить совпадение хешей разных массивов
+    private record Entry(int[] input, int[] sorted) {
+    }
+
+    public CachingSortEngine(SortEngine base, long capacityBytes) {
+        this(base, capacityBytes, CachingSortEngine::hash);
+    }
+
+    // Хеш подменяется в тестах, чтобы проверить совпадение хешей разных массивов
+    CachingSortEngine(SortEngine base, long capacityBytes, ToLongFunction<int[]> hash) {
+        this.base = base;
+        this.capacityBytes = capacityBytes;
+        this.hash = hash;
+    }
+
+    @Override
+    public void sort(int[] data) {
+        Long key = hash.applyAsLong(data);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null && Arrays.equals(entry.input, data)) {
+            hits.increment();
+            System.arraycopy(entry.sorted, 0, data, 0, data.length);
+            return;
+        }
+        misses.increment();
+        int[] input = data.clone();
+        base.sort(data);
+        put(key, new Entry(input, data.clone()));
+    }
+
+    // Запись с тем же хешем заменяется: это либо тот же массив, отсортированный параллельно другим воркером,
+    // либо совпадение хешей, и тогда остаётся более свежий
+    private void put(Long key, Entry entry) {
+        long size = entrySize(entry.sorted.length);
+        if (size > capacityBytes) {
+            return;
+        }
+        synchronized (entries) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                bytes -= entrySize(previous.sorted.length);
+            }
+            bytes += size;
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (bytes > capacityBytes) {
+                bytes -= entrySize(iterator.next().sorted.length);
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        base.shutdown();
+    }
+
+    private static long entrySize(int length) {
+        return ENTRY_OVERHEAD + 2L * Integer.BYTES * length;
+    }
+
+    private static long hash(int[] data) {
+        long h = data.length;
+        for (int value : data) {
+            h = (h ^ value) * 0x9E3779B97F4A7C15L;
+        }
+        return h ^ (h >>> 32);
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public long getBytes() {
+        synchronized (entries) {
+            return bytes;
+        }
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+}
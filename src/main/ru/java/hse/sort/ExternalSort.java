@@ -0,0 +1,62 @@
+package ru.java.hse.sort;
+
+import ru.java.hse.buffer.MappedFile;
+
+import java.io.IOException;
+
+// Внешняя сортировка слиянием чисел в MappedFile. Прогоны по runLength чисел копируются в массив, сортируются
+// движком и записываются обратно, затем все прогоны за один проход сливаются через RunHeap в новый файл.
+// В куче одновременно лежит только один прогон
+public class ExternalSort {
+    public static final int DEFAULT_RUN_LENGTH = 1 << 22;
+
+    private ExternalSort() {
+    }
+
+    // Сортирует count чисел с offset. Возвращает файл с результатом: исходный, если хватило одного прогона,
+    // иначе новый, в который скопированы и первые offset байт. Исходный файл тогда больше не нужен,
+    // и его стоит сразу закрыть
+    public static MappedFile sort(MappedFile file, long offset, long count, SortEngine engine, int runLength)
+            throws IOException {
+        int runs = (int) ((count + runLength - 1) / runLength);
+        int[] run = new int[(int) Math.min(runLength, count)];
+        for (int i = 0; i < runs; i++) {
+            long start = offset + (long) i * runLength * Integer.BYTES;
+            int length = (int) Math.min(runLength, count - (long) i * runLength);
+            int[] values = length == run.length ? run : new int[length];
+            file.getInts(start, values);
+            engine.sort(values);
+            file.putInts(start, values);
+        }
+        if (runs <= 1) {
+            return file;
+        }
+        MappedFile result = MappedFile.create(file.size(), file.segmentShift());
+        for (long position = 0; position < offset; position += Integer.BYTES) {
+            result.putInt(position, file.getInt(position));
+        }
+        merge(file, result, offset, count, runLength, runs);
+        return result;
+    }
+
+    private static void merge(MappedFile source, MappedFile target, long offset, long count, int runLength, int runs) {
+        RunHeap heap = new RunHeap(runs);
+        long[] positions = new long[runs];
+        long[] ends = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            positions[i] = offset + (long) i * runLength * Integer.BYTES;
+            ends[i] = offset + Math.min((long) (i + 1) * runLength, count) * Integer.BYTES;
+            heap.add(i, source.getInt(positions[i]));
+        }
+        for (long output = offset; !heap.isEmpty(); output += Integer.BYTES) {
+            int run = heap.topRun();
+            target.putInt(output, heap.topValue());
+            positions[run] += Integer.BYTES;
+            if (positions[run] == ends[run]) {
+                heap.removeTop();
+            } else {
+                heap.replaceTop(source.getInt(positions[run]));
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package ru.java.hse.sort;
+
+import java.util.Arrays;
+
+public class JdkSortEngine implements SortEngine {
+    @Override
+    public void sort(int[] data) {
+        Arrays.sort(data);
+    }
+}
@@ -0,0 +1,27 @@
+package ru.java.hse.sort;
+
+import java.util.Arrays;
+
+// Начиная с threshold элементов сортирует массив на общем ForkJoinPool
+public class ParallelSortEngine implements SortEngine {
+    public static final int DEFAULT_THRESHOLD = 1 << 13;
+
+    private final int threshold;
+
+    public ParallelSortEngine() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    public ParallelSortEngine(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void sort(int[] data) {
+        if (data.length < threshold) {
+            Arrays.sort(data);
+        } else {
+            Arrays.parallelSort(data);
+        }
+    }
+}
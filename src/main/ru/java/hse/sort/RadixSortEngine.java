@@ -0,0 +1,37 @@
+package ru.java.hse.sort;
+
+import java.util.Arrays;
+
+// LSD radix sort по байтам, у старшего байта инвертируется знаковый бит, чтобы отрицательные шли первыми
+public class RadixSortEngine implements SortEngine {
+    private static final int BITS = 8;
+    private static final int RADIX = 1 << BITS;
+    private static final int MASK = RADIX - 1;
+
+    @Override
+    public void sort(int[] data) {
+        int[] source = data;
+        int[] target = new int[data.length];
+        int[] counts = new int[RADIX];
+        for (int shift = 0; shift < Integer.SIZE; shift += BITS) {
+            int flip = shift == Integer.SIZE - BITS ? 1 << (BITS - 1) : 0;
+            Arrays.fill(counts, 0);
+            for (int value : source) {
+                counts[((value >>> shift) & MASK) ^ flip]++;
+            }
+            int sum = 0;
+            for (int i = 0; i < RADIX; i++) {
+                int count = counts[i];
+                counts[i] = sum;
+                sum += count;
+            }
+            for (int value : source) {
+                target[counts[((value >>> shift) & MASK) ^ flip]++] = value;
+            }
+            int[] tmp = source;
+            source = target;
+            target = tmp;
+        }
+        // Проходов чётное число, поэтому результат уже лежит в исходном массиве
+    }
+}
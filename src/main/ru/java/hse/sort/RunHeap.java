@@ -0,0 +1,71 @@
+package ru.java.hse.sort;
+
+// Куча отсортированных прогонов по их текущему элементу для слияния k прогонов. Позиции внутри прогонов
+// хранит вызывающий: сдвинув верхний прогон, он заменяет его текущий элемент или убирает прогон из кучи
+class RunHeap {
+    private final int[] heap;
+    // Текущий элемент каждого прогона
+    private final int[] heads;
+    private int size;
+
+    RunHeap(int runs) {
+        heap = new int[runs];
+        heads = new int[runs];
+    }
+
+    void add(int run, int head) {
+        heads[run] = head;
+        int i = size++;
+        while (i > 0 && heads[heap[(i - 1) / 2]] > head) {
+            heap[i] = heap[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heap[i] = run;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int topRun() {
+        return heap[0];
+    }
+
+    int topValue() {
+        return heads[heap[0]];
+    }
+
+    void replaceTop(int head) {
+        heads[heap[0]] = head;
+        siftDown();
+    }
+
+    void removeTop() {
+        heap[0] = heap[--size];
+        siftDown();
+    }
+
+    private void siftDown() {
+        if (size == 0) {
+            return;
+        }
+        int run = heap[0];
+        int value = heads[run];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heads[heap[child + 1]] < heads[heap[child]]) {
+                child++;
+            }
+            if (heads[heap[child]] >= value) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = run;
+    }
+}
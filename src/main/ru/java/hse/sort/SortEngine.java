@@ -0,0 +1,10 @@
+package ru.java.hse.sort;
+
+// Сортирует массив на месте
+public interface SortEngine {
+    void sort(int[] data);
+
+    // Останавливает потоки движка, сервер вызывает его в shutdown
+    default void shutdown() {
+    }
+}
@@ -0,0 +1,73 @@
+package ru.java.hse.sort;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Отсортированный массив, который выдаётся кусками. Блоки по chunkSize элементов сортируются движком,
+// затем сливаются, и каждые chunkSize слитых элементов образуют следующий кусок, поэтому кусок окончателен
+// сразу после выдачи. Пустой массив даёт один пустой кусок
+public class SortedChunks implements Iterator<int[]> {
+    private final int[] data;
+    private final int chunkSize;
+    private final RunHeap heap;
+    private final int[] positions;
+    private final int[] ends;
+    private final boolean singleBlock;
+    private int emitted;
+    private boolean started;
+
+    public SortedChunks(int[] data, SortEngine engine, int chunkSize) {
+        this.data = data;
+        this.chunkSize = chunkSize;
+        int blocks = (data.length + chunkSize - 1) / chunkSize;
+        heap = new RunHeap(blocks);
+        positions = new int[blocks];
+        ends = new int[blocks];
+        singleBlock = blocks == 1;
+        if (singleBlock) {
+            engine.sort(data);
+        }
+        for (int block = 0; block < blocks; block++) {
+            positions[block] = block * chunkSize;
+            ends[block] = Math.min(data.length, positions[block] + chunkSize);
+            if (blocks > 1) {
+                int[] run = Arrays.copyOfRange(data, positions[block], ends[block]);
+                engine.sort(run);
+                System.arraycopy(run, 0, data, positions[block], run.length);
+            }
+            heap.add(block, data[positions[block]]);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !started || emitted < data.length;
+    }
+
+    @Override
+    public int[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        started = true;
+        int[] chunk = new int[Math.min(chunkSize, data.length - emitted)];
+        // Один блок уже отсортирован целиком, его достаточно нарезать
+        if (singleBlock) {
+            System.arraycopy(data, emitted, chunk, 0, chunk.length);
+            emitted += chunk.length;
+            return chunk;
+        }
+        for (int i = 0; i < chunk.length; i++) {
+            int block = heap.topRun();
+            chunk[i] = heap.topValue();
+            if (++positions[block] == ends[block]) {
+                heap.removeTop();
+            } else {
+                heap.replaceTop(data[positions[block]]);
+            }
+        }
+        emitted += chunk.length;
+        return chunk;
+    }
+}
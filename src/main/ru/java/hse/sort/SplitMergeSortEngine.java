@@ -0,0 +1,103 @@
+package ru.java.hse.sort;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Массивы от threshold элементов делятся на parallelism кусков, куски сортируются базовым движком
+// на собственном fork/join пуле и сливаются попарно. Массивы короче порога сортируются в вызывающем потоке.
+// Пул создаётся при первой параллельной сортировке и останавливается в shutdown вместе с сервером
+public class SplitMergeSortEngine implements SortEngine {
+    public static final int DEFAULT_THRESHOLD = 1 << 12;
+
+    private final SortEngine base;
+    private final int threshold;
+    private final int parallelism;
+    private ForkJoinPool pool;
+
+    public SplitMergeSortEngine(SortEngine base, int parallelism) {
+        this(base, parallelism, DEFAULT_THRESHOLD);
+    }
+
+    public SplitMergeSortEngine(SortEngine base, int parallelism, int threshold) {
+        this.base = base;
+        this.parallelism = parallelism;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void sort(int[] data) {
+        if (data.length < threshold || parallelism < 2) {
+            base.sort(data);
+            return;
+        }
+        // Кусок не короче половины порога: мелкие куски обходятся дороже слияния
+        int runs = Math.min(parallelism, data.length / Math.max(1, threshold / 2));
+        if (runs < 2) {
+            base.sort(data);
+            return;
+        }
+        getPool().invoke(new SortTask(data, new int[data.length], 0, data.length, runs));
+    }
+
+    private synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        base.shutdown();
+    }
+
+    private class SortTask extends RecursiveAction {
+        private final int[] data;
+        private final int[] buffer;
+        private final int from;
+        private final int to;
+        private final int runs;
+
+        SortTask(int[] data, int[] buffer, int from, int to, int runs) {
+            this.data = data;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.runs = runs;
+        }
+
+        @Override
+        protected void compute() {
+            if (runs == 1) {
+                int[] run = Arrays.copyOfRange(data, from, to);
+                base.sort(run);
+                System.arraycopy(run, 0, data, from, run.length);
+                return;
+            }
+            // Граница делит кусок пропорционально числу частей, поэтому длины частей отличаются не больше чем на один
+            int leftRuns = runs / 2;
+            int middle = from + (int) ((long) (to - from) * leftRuns / runs);
+            invokeAll(new SortTask(data, buffer, from, middle, leftRuns),
+                    new SortTask(data, buffer, middle, to, runs - leftRuns));
+            merge(middle);
+        }
+
+        // Левая половина копируется в буфер, правая сливается с ней на месте
+        private void merge(int middle) {
+            if (data[middle - 1] <= data[middle]) {
+                return;
+            }
+            System.arraycopy(data, from, buffer, from, middle - from);
+            int left = from, right = middle, target = from;
+            while (left < middle && right < to) {
+                data[target++] = buffer[left] <= data[right] ? buffer[left++] : data[right++];
+            }
+            System.arraycopy(buffer, left, data, target, middle - left);
+        }
+    }
+}
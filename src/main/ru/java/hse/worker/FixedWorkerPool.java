@@ -0,0 +1,41 @@
+package ru.java.hse.worker;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Фиксированное число потоков с одной общей очередью
+public class FixedWorkerPool implements WorkerPool {
+    private final int threads;
+    private ThreadPoolExecutor executor;
+
+    public FixedWorkerPool() {
+        this(WorkerPool.defaultThreads());
+    }
+
+    public FixedWorkerPool(int threads) {
+        this.threads = threads;
+    }
+
+    @Override
+    public void start(ThreadFactory threadFactory) {
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                threadFactory);
+    }
+
+    @Override
+    public void execute(int key, Runnable task) {
+        executor.execute(task);
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public long getQueueSize() {
+        return executor.getQueue().size();
+    }
+}
@@ -0,0 +1,39 @@
+package ru.java.hse.worker;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+
+// ForkJoinPool в асинхронном режиме (FIFO): у каждого потока своя очередь, свободные потоки крадут задачи.
+// Потоки создаёт сам ForkJoinPool, поэтому переданная фабрика не используется
+public class ForkJoinWorkerPool implements WorkerPool {
+    private final int parallelism;
+    private ForkJoinPool pool;
+
+    public ForkJoinWorkerPool() {
+        this(WorkerPool.defaultThreads());
+    }
+
+    public ForkJoinWorkerPool(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void start(ThreadFactory threadFactory) {
+        pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    }
+
+    @Override
+    public void execute(int key, Runnable task) {
+        pool.execute(task);
+    }
+
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Override
+    public long getQueueSize() {
+        return pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount();
+    }
+}
@@ -0,0 +1,25 @@
+package ru.java.hse.worker;
+
+import java.util.concurrent.ThreadFactory;
+
+// Выполняет задачу сразу в потоке ввода-вывода, который её отправил: без очереди и переключений,
+// но пока идёт сортировка, этот поток не читает и не пишет
+public class InlineWorkerPool implements WorkerPool {
+    @Override
+    public void start(ThreadFactory threadFactory) {
+    }
+
+    @Override
+    public void execute(int key, Runnable task) {
+        task.run();
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    @Override
+    public long getQueueSize() {
+        return 0;
+    }
+}
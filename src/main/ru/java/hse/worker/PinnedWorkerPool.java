@@ -0,0 +1,49 @@
+package ru.java.hse.worker;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Отдельная очередь и поток на каждое ядро, клиент всегда попадает в одну и ту же очередь.
+// Задачи не перераспределяются, зато данные клиента остаются в кэше одного потока
+public class PinnedWorkerPool implements WorkerPool {
+    private final ThreadPoolExecutor[] executors;
+
+    public PinnedWorkerPool() {
+        this(WorkerPool.defaultThreads());
+    }
+
+    public PinnedWorkerPool(int threads) {
+        executors = new ThreadPoolExecutor[threads];
+    }
+
+    @Override
+    public void start(ThreadFactory threadFactory) {
+        for (int i = 0; i < executors.length; i++) {
+            executors[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    threadFactory);
+        }
+    }
+
+    @Override
+    public void execute(int key, Runnable task) {
+        executors[Math.floorMod(key, executors.length)].execute(task);
+    }
+
+    @Override
+    public void shutdown() {
+        for (ThreadPoolExecutor executor : executors) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public long getQueueSize() {
+        long size = 0;
+        for (ThreadPoolExecutor executor : executors) {
+            size += executor.getQueue().size();
+        }
+        return size;
+    }
+}
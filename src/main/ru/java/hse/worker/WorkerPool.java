@@ -0,0 +1,21 @@
+package ru.java.hse.worker;
+
+import java.util.concurrent.ThreadFactory;
+
+// Пул, в котором сервер сортирует массивы. Потоки создаются в start и останавливаются в shutdown
+public interface WorkerPool {
+    // Оставляем ядра потокам ввода-вывода и клиентам, но хотя бы один воркер нужен всегда
+    static int defaultThreads() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() - 2);
+    }
+
+    void start(ThreadFactory threadFactory);
+
+    // Задачи с одинаковым ключом (номером клиента) пул может направлять в одну очередь
+    void execute(int key, Runnable task);
+
+    void shutdown();
+
+    // Число задач, ожидающих своего потока
+    long getQueueSize();
+}
@@ -0,0 +1,120 @@
+package ru.java.hse;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTest {
+    @Test
+    void smallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (int value = 0; value < 128; value++) {
+            histogram.recordValue(value);
+        }
+        assertEquals(128, histogram.getTotalCount());
+        assertEquals(63.5, histogram.getMean(), 1e-9);
+        assertEquals(127, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(0));
+        assertEquals(63, histogram.getValueAtPercentile(50));
+        assertEquals(126, histogram.getValueAtPercentile(99));
+        assertEquals(127, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void largeValuesKeepRelativeError() {
+        long[] values = {128, 129, 1000, 4097, 123_456, 999_999_937, Histogram.MAX_VALUE / 3};
+        for (long value : values) {
+            Histogram histogram = new Histogram();
+            histogram.recordValue(value);
+            // Второе значение больше, чтобы перцентиль не обрезался максимумом
+            histogram.recordValue(Histogram.MAX_VALUE);
+            long reported = histogram.getValueAtPercentile(50);
+            assertTrue(reported >= value, value + " reported as " + reported);
+            assertTrue(reported - value <= value / 50, value + " reported as " + reported);
+        }
+    }
+
+    @Test
+    void percentileDoesNotExceedMax() {
+        Histogram histogram = new Histogram();
+        histogram.recordValue(1000);
+        assertEquals(1000, histogram.getValueAtPercentile(99.9));
+    }
+
+    @Test
+    void valuesAreClamped() {
+        Histogram histogram = new Histogram();
+        histogram.recordValue(-5);
+        histogram.recordValue(Long.MAX_VALUE);
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(Histogram.MAX_VALUE, histogram.getMax());
+        assertEquals(Histogram.MAX_VALUE, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void emptyHistogram() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getMean(), 0);
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    void addMergesCounts() {
+        Histogram first = new Histogram();
+        Histogram second = new Histogram();
+        for (int i = 0; i < 100; i++) {
+            first.recordValue(10);
+            second.recordValue(1_000_000);
+        }
+        first.add(second);
+        assertEquals(200, first.getTotalCount());
+        assertEquals(10, first.getValueAtPercentile(50));
+        assertEquals(1_000_000, first.getMax());
+        assertEquals(500_005, first.getMean(), 1e-9);
+    }
+
+    @Test
+    void resetClearsEverything() {
+        Histogram histogram = new Histogram();
+        histogram.recordValue(42);
+        histogram.reset();
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void copyIsIndependent() {
+        Histogram histogram = new Histogram();
+        histogram.recordValue(5);
+        Histogram copy = histogram.copy();
+        histogram.recordValue(500);
+        assertEquals(1, copy.getTotalCount());
+        assertEquals(5, copy.getMax());
+        assertEquals(2, histogram.getTotalCount());
+    }
+
+    @Test
+    void serializationRoundTrip() throws IOException {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.recordValue((long) i * i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        histogram.writeTo(new DataOutputStream(bytes));
+        Histogram copy = Histogram.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(histogram.getTotalCount(), copy.getTotalCount());
+        assertEquals(histogram.getMax(), copy.getMax());
+        assertEquals(histogram.getMean(), copy.getMean(), 0);
+        for (double percentile : new double[]{1, 50, 90, 99, 99.9, 100}) {
+            assertEquals(histogram.getValueAtPercentile(percentile), copy.getValueAtPercentile(percentile));
+        }
+    }
+}
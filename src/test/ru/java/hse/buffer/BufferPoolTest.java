@@ -0,0 +1,116 @@
+package ru.java.hse.buffer;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferPoolTest {
+    private static final int SMALLEST = 512;
+    private static final int LOCAL_CACHE_SIZE = 8;
+    private static final int SHARED_CACHE_SIZE = 256;
+
+    private static List<ByteBuffer> acquire(BufferPool pool, int count, int size) {
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            buffers.add(pool.acquire(size));
+        }
+        return buffers;
+    }
+
+    private static void inThread(Runnable task) throws InterruptedException {
+        Thread thread = new Thread(task);
+        thread.start();
+        thread.join();
+    }
+
+    @Test
+    void sizeClasses() {
+        BufferPool pool = new BufferPool();
+        int[][] cases = {{1, SMALLEST}, {SMALLEST, SMALLEST}, {SMALLEST + 1, 2 * SMALLEST}, {4096, 4096},
+                {4097, 8192}, {1 << 26, 1 << 26}};
+        for (int[] sizeAndCapacity : cases) {
+            ByteBuffer buffer = pool.acquire(sizeAndCapacity[0]);
+            assertTrue(buffer.isDirect());
+            assertEquals(sizeAndCapacity[1], buffer.capacity());
+            assertEquals(0, buffer.position());
+            assertEquals(sizeAndCapacity[0], buffer.limit());
+        }
+    }
+
+    @Test
+    void releasedBufferIsReusedCleared() {
+        BufferPool pool = new BufferPool();
+        ByteBuffer buffer = pool.acquire(1000);
+        buffer.putInt(42).flip();
+        pool.release(buffer);
+        ByteBuffer reused = pool.acquire(700);
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(700, reused.limit());
+        assertEquals(0.5, pool.getHitRate(), 0);
+        assertEquals(1024, pool.getBytesAllocated());
+    }
+
+    // Что не помещается в кэш потока, достаётся другим потокам через общий список
+    @Test
+    void localCacheOverflowsIntoShared() throws InterruptedException {
+        BufferPool pool = new BufferPool();
+        acquire(pool, LOCAL_CACHE_SIZE + 3, SMALLEST).forEach(pool::release);
+        pool.resetStats();
+        inThread(() -> acquire(pool, 4, SMALLEST));
+        assertEquals(0.75, pool.getHitRate(), 0);
+        assertEquals(SMALLEST, pool.getBytesAllocated());
+        // Кэш первого потока остался на месте
+        pool.resetStats();
+        acquire(pool, LOCAL_CACHE_SIZE, SMALLEST);
+        assertEquals(1, pool.getHitRate(), 0);
+    }
+
+    @Test
+    void sharedListIsBounded() throws InterruptedException {
+        BufferPool pool = new BufferPool();
+        int extra = 50;
+        acquire(pool, LOCAL_CACHE_SIZE + SHARED_CACHE_SIZE + extra, SMALLEST).forEach(pool::release);
+        pool.resetStats();
+        inThread(() -> acquire(pool, SHARED_CACHE_SIZE + extra, SMALLEST));
+        assertEquals((long) extra * SMALLEST, pool.getBytesAllocated());
+    }
+
+    @Test
+    void classesDoNotMix() {
+        BufferPool pool = new BufferPool();
+        pool.release(pool.acquire(SMALLEST));
+        pool.resetStats();
+        assertEquals(2 * SMALLEST, pool.acquire(2 * SMALLEST).capacity());
+        assertEquals(0, pool.getHitRate(), 0);
+    }
+
+    @Test
+    void oversizedRequestsAreNotPooled() {
+        BufferPool pool = new BufferPool();
+        int size = (1 << 26) + Integer.BYTES;
+        ByteBuffer buffer = pool.acquire(size);
+        assertEquals(size, buffer.capacity());
+        assertEquals(size, pool.getBytesAllocated());
+        pool.release(buffer);
+        pool.resetStats();
+        pool.acquire(size);
+        assertEquals(0, pool.getHitRate(), 0);
+        assertEquals(size, pool.getBytesAllocated());
+    }
+
+    @Test
+    void foreignBuffersAreIgnored() {
+        BufferPool pool = new BufferPool();
+        pool.release(ByteBuffer.allocate(SMALLEST));
+        pool.release(ByteBuffer.allocateDirect(SMALLEST + 4));
+        ByteBuffer buffer = pool.acquire(SMALLEST);
+        assertTrue(buffer.isDirect());
+        assertEquals(SMALLEST, buffer.capacity());
+        assertEquals(0, pool.getHitRate(), 0);
+    }
+}
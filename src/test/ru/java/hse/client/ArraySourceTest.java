@@ -0,0 +1,71 @@
+package ru.java.hse.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArraySourceTest {
+    @Test
+    void withoutReplayArraysAreNew() {
+        ArraySource source = new ArraySource(50, 0);
+        Random random = new Random(1);
+        Set<int[]> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < 100; i++) {
+            int[] data = source.next(random);
+            assertEquals(50, data.length);
+            assertTrue(seen.add(data));
+        }
+    }
+
+    // Первый массив всегда новый, дальше повторяется он же
+    @Test
+    void fullReplayRepeatsFirstArray() {
+        ArraySource source = new ArraySource(10, 100);
+        Random random = new Random(2);
+        int[] first = source.next(random);
+        for (int i = 0; i < 100; i++) {
+            assertSame(first, source.next(random));
+        }
+    }
+
+    @Test
+    void partialReplay() {
+        ArraySource source = new ArraySource(10, 30);
+        Random random = new Random(3);
+        Set<int[]> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        int repeats = 0;
+        int count = 10_000;
+        for (int i = 0; i < count; i++) {
+            if (!seen.add(source.next(random))) {
+                repeats++;
+            }
+        }
+        assertTrue(Math.abs(repeats - 0.3 * count) < 0.03 * count);
+    }
+
+    // Повторы могут вернуть только массивы из истории, поэтому из созданных раньше их не больше её размера
+    @Test
+    void historyIsBounded() {
+        ArraySource source = new ArraySource(1, 50);
+        Random random = new Random(4);
+        Set<int[]> old = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < 20 * ArraySource.HISTORY_SIZE; i++) {
+            old.add(source.next(random));
+        }
+        assertTrue(old.size() > 5 * ArraySource.HISTORY_SIZE);
+        Set<int[]> replayed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < 100_000; i++) {
+            int[] data = source.next(random);
+            if (old.contains(data)) {
+                replayed.add(data);
+            }
+        }
+        assertFalse(replayed.isEmpty());
+        assertTrue(replayed.size() <= ArraySource.HISTORY_SIZE);
+    }
+}
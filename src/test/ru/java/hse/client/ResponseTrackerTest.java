@@ -0,0 +1,82 @@
+package ru.java.hse.client;
+
+import org.junit.jupiter.api.Test;
+import ru.java.hse.Histogram;
+import ru.java.hse.message.IntArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseTrackerTest {
+    private final Histogram latencies = new Histogram();
+    private final Histogram firstChunkLatencies = new Histogram();
+
+    private ResponseTracker tracker(int arraySize) {
+        return new ResponseTracker(4, arraySize, latencies, firstChunkLatencies);
+    }
+
+    private static IntArray chunk(int id, int... values) {
+        return new IntArray(id, values);
+    }
+
+    @Test
+    void wholeResponse() {
+        ResponseTracker tracker = tracker(3);
+        assertTrue(tracker.onChunk(chunk(0, 1, 2, 3), System.nanoTime()));
+        assertEquals(1, latencies.getTotalCount());
+        assertEquals(1, firstChunkLatencies.getTotalCount());
+    }
+
+    // Куски разных ответов чередуются, каждый ответ завершается своим последним куском
+    @Test
+    void interleavedChunks() {
+        ResponseTracker tracker = tracker(4);
+        long start = System.nanoTime();
+        assertFalse(tracker.onChunk(chunk(0, 1, 2), start));
+        assertFalse(tracker.onChunk(chunk(1, -5), start));
+        assertEquals(2, firstChunkLatencies.getTotalCount());
+        assertFalse(tracker.onChunk(chunk(1, -5, 0), start));
+        assertTrue(tracker.onChunk(chunk(0, 2, 9), start));
+        assertEquals(1, latencies.getTotalCount());
+        assertTrue(tracker.onChunk(chunk(1, 7), start));
+        assertEquals(2, latencies.getTotalCount());
+        assertEquals(2, firstChunkLatencies.getTotalCount());
+    }
+
+    // Отказ перегруженного сервера завершает запрос, но не попадает в задержки
+    @Test
+    void rejectIsNotMeasured() {
+        ResponseTracker tracker = tracker(3);
+        assertTrue(tracker.onChunk(chunk(2), System.nanoTime()));
+        assertEquals(0, latencies.getTotalCount());
+        assertEquals(0, firstChunkLatencies.getTotalCount());
+    }
+
+    @Test
+    void emptyRequestIsMeasured() {
+        ResponseTracker tracker = tracker(0);
+        assertTrue(tracker.onChunk(chunk(2), System.nanoTime()));
+        assertEquals(1, latencies.getTotalCount());
+        assertEquals(1, firstChunkLatencies.getTotalCount());
+    }
+
+    @Test
+    void unsortedChunkIsRejected() {
+        ResponseTracker tracker = tracker(3);
+        assertThrows(IllegalStateException.class, () -> tracker.onChunk(chunk(0, 2, 1, 3), System.nanoTime()));
+    }
+
+    // Каждый кусок отсортирован, но следующий начинается меньше, чем закончился предыдущий
+    @Test
+    void chunksMustContinueEachOther() {
+        ResponseTracker tracker = tracker(4);
+        assertFalse(tracker.onChunk(chunk(0, 1, 5), System.nanoTime()));
+        assertThrows(IllegalStateException.class, () -> tracker.onChunk(chunk(0, 4, 6), System.nanoTime()));
+    }
+
+    @Test
+    void responseLongerThanRequest() {
+        ResponseTracker tracker = tracker(2);
+        assertFalse(tracker.onChunk(chunk(3, 1), System.nanoTime()));
+        assertThrows(IllegalStateException.class, () -> tracker.onChunk(chunk(3, 2, 3), System.nanoTime()));
+    }
+}
@@ -0,0 +1,123 @@
+package ru.java.hse.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+    private static final long TICK = 1000;
+    private static final int SLOTS = 8;
+
+    private static void schedule(TimerWheel wheel, List<Long> fired, long... deadlines) {
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, () -> fired.add(deadline));
+        }
+    }
+
+    @Test
+    void firesInDeadlineOrderAndNotEarly() {
+        TimerWheel wheel = new TimerWheel(TICK, SLOTS, 0);
+        List<Long> fired = new ArrayList<>();
+        schedule(wheel, fired, 5000, 1000, 3500, 3000, 1200);
+        assertFalse(wheel.isEmpty());
+        wheel.advance(999);
+        assertTrue(fired.isEmpty());
+        // Срок 1200 в том же тике, что и 1000, но ещё не наступил
+        wheel.advance(1100);
+        assertEquals(List.of(1000L), fired);
+        wheel.advance(3200);
+        assertEquals(List.of(1000L, 1200L, 3000L), fired);
+        wheel.advance(10_000);
+        assertEquals(List.of(1000L, 1200L, 3000L, 3500L, 5000L), fired);
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    void pastDeadlineFiresOnNextAdvance() {
+        TimerWheel wheel = new TimerWheel(TICK, SLOTS, 10_000);
+        List<Long> fired = new ArrayList<>();
+        schedule(wheel, fired, 2000);
+        wheel.advance(10_000);
+        assertEquals(List.of(2000L), fired);
+    }
+
+    // Задачи через несколько оборотов лежат в той же корзине, что и ближние, и ждут своего оборота
+    @Test
+    void deadlinesBeyondOneRevolution() {
+        TimerWheel wheel = new TimerWheel(TICK, SLOTS, 0);
+        List<Long> fired = new ArrayList<>();
+        long far = 2 * SLOTS * TICK + 3000;
+        schedule(wheel, fired, far, 3000, SLOTS * TICK + 3000);
+        wheel.advance(3000);
+        assertEquals(List.of(3000L), fired);
+        wheel.advance(SLOTS * TICK + 2999);
+        assertEquals(List.of(3000L), fired);
+        wheel.advance(SLOTS * TICK + 3000);
+        assertEquals(List.of(3000L, SLOTS * TICK + 3000), fired);
+        wheel.advance(far - 1);
+        assertEquals(2, fired.size());
+        // Несколько оборотов за один вызов
+        wheel.advance(far + 5 * SLOTS * TICK);
+        assertEquals(List.of(3000L, SLOTS * TICK + 3000, far), fired);
+        assertTrue(wheel.isEmpty());
+    }
+
+    // Задача, которая переносит себя на более поздний тик, догоняет время в том же вызове
+    @Test
+    void reschedulingDuringAdvance() {
+        TimerWheel wheel = new TimerWheel(TICK, SLOTS, 0);
+        List<Long> fired = new ArrayList<>();
+        Runnable[] task = new Runnable[1];
+        long[] deadline = {5000};
+        task[0] = () -> {
+            fired.add(deadline[0]);
+            deadline[0] += 3000;
+            wheel.schedule(deadline[0], task[0]);
+        };
+        wheel.schedule(deadline[0], task[0]);
+        wheel.advance(20_000);
+        assertEquals(List.of(5000L, 8000L, 11_000L, 14_000L, 17_000L, 20_000L), fired);
+        assertFalse(wheel.isEmpty());
+        wheel.advance(22_999);
+        assertEquals(6, fired.size());
+        wheel.advance(23_000);
+        assertEquals(7, fired.size());
+    }
+
+    // Задача, добавленная в текущий тик во время обхода, ждёт следующего вызова
+    @Test
+    void reschedulingIntoCurrentTick() {
+        TimerWheel wheel = new TimerWheel(TICK, SLOTS, 0);
+        List<Long> fired = new ArrayList<>();
+        wheel.schedule(1000, () -> {
+            fired.add(1000L);
+            wheel.schedule(1000, () -> fired.add(-1000L));
+        });
+        wheel.advance(1500);
+        assertEquals(List.of(1000L), fired);
+        wheel.advance(1500);
+        assertEquals(List.of(1000L, -1000L), fired);
+        assertTrue(wheel.isEmpty());
+    }
+
+    // System.nanoTime() может быть отрицательным
+    @Test
+    void negativeTimes() {
+        long start = -5 * SLOTS * TICK - 300;
+        TimerWheel wheel = new TimerWheel(TICK, SLOTS, start);
+        List<Long> fired = new ArrayList<>();
+        schedule(wheel, fired, start + 500, -1500, -1, 0, 2500);
+        wheel.advance(start + 500);
+        assertEquals(List.of(start + 500), fired);
+        wheel.advance(-2);
+        assertEquals(List.of(start + 500, -1500L), fired);
+        wheel.advance(0);
+        assertEquals(List.of(start + 500, -1500L, -1L, 0L), fired);
+        wheel.advance(2500);
+        assertEquals(5, fired.size());
+        assertTrue(wheel.isEmpty());
+    }
+}
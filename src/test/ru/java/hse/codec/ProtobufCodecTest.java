@@ -0,0 +1,134 @@
+package ru.java.hse.codec;
+
+import org.junit.jupiter.api.Test;
+import ru.java.hse.buffer.BufferPool;
+import ru.java.hse.message.IntArray;
+import ru.java.hse.message.IntArrayProtos;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProtobufCodecTest {
+    private final ProtobufCodec codec = new ProtobufCodec();
+
+    private static List<IntArray> samples() {
+        Random random = new Random(42);
+        return List.of(
+                new IntArray(0, new int[0]),
+                new IntArray(7, new int[0]),
+                new IntArray(0, new int[]{0}),
+                new IntArray(-1, new int[]{-1, 1, Integer.MIN_VALUE, Integer.MAX_VALUE, 127, 128, -128}),
+                new IntArray(123_456, random.ints(10_000).toArray()),
+                new IntArray(Integer.MAX_VALUE, random.ints(1000, 0, 100).toArray()));
+    }
+
+    // Тело без длины, которой предваряется сообщение
+    private static byte[] body(ByteBuffer encoded) {
+        ByteBuffer buffer = encoded.duplicate();
+        int size = buffer.getInt();
+        assertEquals(size, buffer.remaining());
+        byte[] bytes = new byte[size];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static IntArrayProtos.IntArray generated(IntArray array) {
+        return IntArrayProtos.IntArray.newBuilder()
+                .setId(array.id())
+                .addAllArray(Arrays.stream(array.data()).boxed().toList())
+                .build();
+    }
+
+    @Test
+    void roundTrip() throws IOException {
+        for (IntArray array : samples()) {
+            ByteBuffer encoded = codec.write(array);
+            encoded.getInt();
+            IntArray decoded = codec.read(encoded);
+            assertEquals(array.id(), decoded.id());
+            assertArrayEquals(array.data(), decoded.data());
+            assertFalse(encoded.hasRemaining());
+        }
+    }
+
+    @Test
+    void streamRoundTrip() throws IOException {
+        for (IntArray array : samples()) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            codec.write(output, array);
+            IntArray decoded = codec.read(new ByteArrayInputStream(output.toByteArray()));
+            assertEquals(array.id(), decoded.id());
+            assertArrayEquals(array.data(), decoded.data());
+        }
+    }
+
+    @Test
+    void allWriteVariantsProduceSameBytes() {
+        BufferPool pool = new BufferPool();
+        ByteBuffer reused = ByteBuffer.allocate(1 << 16);
+        for (IntArray array : samples()) {
+            byte[] expected = body(codec.write(array));
+            ByteBuffer pooled = codec.write(array, pool);
+            assertArrayEquals(expected, body(pooled));
+            pool.release(pooled);
+            reused = codec.write(array, reused);
+            assertArrayEquals(expected, body(reused));
+        }
+    }
+
+    @Test
+    void encodesLikeGeneratedCode() {
+        for (IntArray array : samples()) {
+            assertArrayEquals(generated(array).toByteArray(), body(codec.write(array)));
+        }
+    }
+
+    @Test
+    void decodesGeneratedCode() throws IOException {
+        for (IntArray array : samples()) {
+            IntArray decoded = codec.read(ByteBuffer.wrap(generated(array).toByteArray()));
+            assertEquals(array.id(), decoded.id());
+            assertArrayEquals(array.data(), decoded.data());
+        }
+    }
+
+    @Test
+    void generatedCodeDecodesOurOutput() throws IOException {
+        for (IntArray array : samples()) {
+            IntArrayProtos.IntArray parsed = IntArrayProtos.IntArray.parseFrom(body(codec.write(array)));
+            assertEquals(array.id(), parsed.getId());
+            assertEquals(Arrays.stream(array.data()).boxed().toList(), parsed.getArrayList());
+        }
+    }
+
+    // Старые кодировщики могли писать repeated int32 без упаковки, по тегу на число
+    @Test
+    void decodesUnpackedArray() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        // id = 5: поле 1, varint
+        bytes.write(new byte[]{0x08, 0x05});
+        // array: поле 2, varint, по одному числу
+        for (int value : new int[]{3, 1, 2}) {
+            bytes.write(new byte[]{0x10, (byte) value});
+        }
+        IntArray decoded = codec.read(ByteBuffer.wrap(bytes.toByteArray()));
+        assertEquals(5, decoded.id());
+        assertArrayEquals(new int[]{3, 1, 2}, decoded.data());
+    }
+
+    @Test
+    void skipsUnknownFields() throws IOException {
+        // Поле 3 (varint) перед id и массивом из одного числа
+        byte[] bytes = {0x18, 0x01, 0x08, 0x02, 0x12, 0x01, 0x09};
+        IntArray decoded = codec.read(ByteBuffer.wrap(bytes));
+        assertEquals(2, decoded.id());
+        assertArrayEquals(new int[]{9}, decoded.data());
+    }
+}
@@ -0,0 +1,270 @@
+package ru.java.hse.server;
+
+import org.junit.jupiter.api.Test;
+import ru.java.hse.codec.MessageCodec;
+import ru.java.hse.codec.RawCodec;
+import ru.java.hse.message.IntArray;
+import ru.java.hse.sort.JdkSortEngine;
+import ru.java.hse.sort.SortEngine;
+import ru.java.hse.worker.FixedWorkerPool;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsynchronousServerTest {
+    private static final int PORT = 18234;
+    private static final int TIMEOUT_MILLIS = 10_000;
+
+    private final MessageCodec codec = new RawCodec();
+
+    private static Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", PORT);
+        socket.setSoTimeout(TIMEOUT_MILLIS);
+        return socket;
+    }
+
+    private void assertSortedResponse(Socket socket, IntArray request) throws IOException {
+        IntArray response = codec.read(socket.getInputStream());
+        int[] expected = request.data().clone();
+        Arrays.sort(expected);
+        assertEquals(request.id(), response.id());
+        assertArrayEquals(expected, response.data());
+    }
+
+    // Сообщение, которое не разобрал кодек, закрывает только своё соединение
+    @Test
+    void malformedFrameClosesClient() throws IOException, ServerException {
+        AsynchronousServer server = new AsynchronousServer(codec, new JdkSortEngine());
+        server.start(PORT);
+        try (Socket broken = connect(); Socket healthy = connect()) {
+            DataOutputStream output = new DataOutputStream(broken.getOutputStream());
+            // RawCodec требует тело кратное четырём байтам
+            output.writeInt(3);
+            output.write(new byte[]{1, 2, 3});
+            output.flush();
+            assertEquals(-1, broken.getInputStream().read());
+
+            IntArray request = new IntArray(5, new Random(1).ints(1000).toArray());
+            codec.write(healthy.getOutputStream(), request);
+            assertSortedResponse(healthy, request);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    // Клиент с маленьким буфером приёма не читает, пока сервер не упрётся в запись: пакетная запись
+    // уходит частями, и каждый ответ должен дойти целиком и без перемешивания с соседними
+    @Test
+    void partialGatheringWritesResume() throws IOException, ServerException, InterruptedException {
+        AsynchronousServer server = new AsynchronousServer(codec, new JdkSortEngine());
+        server.start(PORT);
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(4096);
+            socket.setSoTimeout(TIMEOUT_MILLIS);
+            socket.connect(new InetSocketAddress("localhost", PORT));
+            Random random = new Random(2);
+            Map<Integer, IntArray> requests = new HashMap<>();
+            OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+            for (int id = 0; id < 40; id++) {
+                IntArray request = new IntArray(id, random.ints(1 + random.nextInt(50_000)).toArray());
+                requests.put(id, request);
+                codec.write(output, request);
+            }
+            output.flush();
+            Thread.sleep(500);
+            for (int i = 0; i < 40; i++) {
+                IntArray response = codec.read(socket.getInputStream());
+                IntArray request = requests.remove(response.id());
+                assertNotNull(request);
+                int[] expected = request.data().clone();
+                Arrays.sort(expected);
+                assertArrayEquals(expected, response.data());
+            }
+            assertTrue(requests.isEmpty());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    // Сортировка дольше чтения, чтобы запросы копились в лимитах
+    private static final SortEngine SLOW_SORT = data -> {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Arrays.sort(data);
+    };
+
+    private static ServerOptions limits(int maxClientInFlight, int maxInFlight, boolean rejectOverload) {
+        return new ServerOptions(maxClientInFlight, maxInFlight, rejectOverload, 0,
+                ServerOptions.DEFAULT_SPILL_BYTES, 0);
+    }
+
+    // Каждый клиент отправляет все запросы сразу и возвращает ответы в порядке прихода
+    private List<IntArray> pipeline(int clients, int requests) throws InterruptedException {
+        List<IntArray> responses = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (int c = 0; c < clients; c++) {
+            int seed = c;
+            Thread thread = new Thread(() -> {
+                try (Socket socket = connect()) {
+                    Random random = new Random(seed);
+                    OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+                    for (int id = 0; id < requests; id++) {
+                        codec.write(output, new IntArray(id, random.ints(100).toArray()));
+                    }
+                    output.flush();
+                    for (int i = 0; i < requests; i++) {
+                        responses.add(codec.read(socket.getInputStream()));
+                    }
+                } catch (IOException e) {
+                    failures.incrementAndGet();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, failures.get());
+        assertEquals((long) clients * requests, responses.size());
+        return responses;
+    }
+
+    @Test
+    void globalLimitIsNeverExceeded() throws ServerException, InterruptedException {
+        AsynchronousServer server = new AsynchronousServer(codec, SLOW_SORT, new FixedWorkerPool(4),
+                limits(64, 3, false));
+        server.start(PORT);
+        try {
+            for (IntArray response : pipeline(8, 5)) {
+                assertEquals(100, response.data().length);
+            }
+        } finally {
+            server.shutdown();
+        }
+        Map<String, Number> counters = server.getCounters();
+        assertEquals(3, counters.get("peakInFlight").longValue());
+        assertEquals(0, counters.get("rejected").longValue());
+        assertTrue(counters.get("readPauses").longValue() > 0);
+    }
+
+    @Test
+    void clientLimitPausesReading() throws ServerException, InterruptedException {
+        AsynchronousServer server = new AsynchronousServer(codec, SLOW_SORT, new FixedWorkerPool(4),
+                limits(1, 64, false));
+        server.start(PORT);
+        try {
+            pipeline(1, 5);
+        } finally {
+            server.shutdown();
+        }
+        Map<String, Number> counters = server.getCounters();
+        assertEquals(1, counters.get("peakInFlight").longValue());
+        assertTrue(counters.get("readPauses").longValue() >= 4);
+    }
+
+    // Отказ - пустой массив с тем же id, он тоже считается ответом на запрос
+    @Test
+    void overloadIsRejected() throws ServerException, InterruptedException {
+        AsynchronousServer server = new AsynchronousServer(codec, SLOW_SORT, new FixedWorkerPool(1),
+                limits(64, 2, true));
+        server.start(PORT);
+        long empty;
+        try {
+            List<IntArray> responses = pipeline(1, 20);
+            empty = responses.stream().filter(response -> response.data().length == 0).count();
+            assertEquals(20, responses.stream().mapToInt(IntArray::id).distinct().count());
+        } finally {
+            server.shutdown();
+        }
+        Map<String, Number> counters = server.getCounters();
+        assertTrue(empty > 0);
+        assertEquals(empty, counters.get("rejected").longValue());
+        assertTrue(counters.get("peakInFlight").longValue() <= 2);
+    }
+
+    // Файлы по 4 КиБ, сообщения от килобайта сортируются в них
+    private static AsynchronousServer spillingServer(MessageCodec codec) {
+        return new AsynchronousServer(codec, new JdkSortEngine(), new FixedWorkerPool(4),
+                new ServerOptions(64, 4096, false, 0, 1024, 0), 12);
+    }
+
+    // Ответ из файла в несколько сегментов уходит одним Output, и ответы на соседние запросы, которые
+    // сортируются параллельно, не попадают между его сегментами
+    @Test
+    void spilledSegmentsAreNotInterleaved() throws IOException, ServerException {
+        AsynchronousServer server = spillingServer(codec);
+        server.start(PORT);
+        int count = 60;
+        try (Socket socket = connect()) {
+            Random random = new Random(3);
+            Map<Integer, IntArray> requests = new HashMap<>();
+            OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+            for (int id = 0; id < count; id++) {
+                // Каждый второй - три сегмента и ещё немного
+                int length = id % 2 == 0 ? 3 * 1024 + random.nextInt(100) : 1 + random.nextInt(200);
+                IntArray request = new IntArray(id, random.ints(length).toArray());
+                requests.put(id, request);
+                codec.write(output, request);
+            }
+            output.flush();
+            for (int i = 0; i < count; i++) {
+                IntArray response = codec.read(socket.getInputStream());
+                IntArray request = requests.remove(response.id());
+                assertNotNull(request);
+                int[] expected = request.data().clone();
+                Arrays.sort(expected);
+                assertArrayEquals(expected, response.data());
+            }
+        } finally {
+            server.shutdown();
+        }
+        assertEquals(count / 2, server.getCounters().get("spilled").longValue());
+    }
+
+    // Клиент уходит, не прочитав ответы из файлов: сервер освобождает их и обслуживает следующих
+    @Test
+    void unsentSpilledResponsesAreDiscarded() throws IOException, ServerException, InterruptedException {
+        AsynchronousServer server = spillingServer(codec);
+        server.start(PORT);
+        try {
+            try (Socket socket = new Socket()) {
+                socket.setReceiveBufferSize(4096);
+                socket.connect(new InetSocketAddress("localhost", PORT));
+                OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+                Random random = new Random(4);
+                // Ответы больше буферов сокета, так что запись застревает
+                for (int id = 0; id < 8; id++) {
+                    codec.write(output, new IntArray(id, random.ints(1 << 20).toArray()));
+                }
+                output.flush();
+                Thread.sleep(300);
+            }
+            try (Socket socket = connect()) {
+                IntArray request = new IntArray(1, new Random(5).ints(5000).toArray());
+                codec.write(socket.getOutputStream(), request);
+                assertSortedResponse(socket, request);
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ru.java.hse.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscQueueTest {
+    @Test
+    void singleThreadFifo() {
+        MpscQueue<Integer> queue = new MpscQueue<>();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.peek());
+        assertNull(queue.poll());
+        for (int i = 0; i < 10; i++) {
+            queue.offer(i);
+        }
+        assertFalse(queue.isEmpty());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Integer.valueOf(i), queue.peek());
+            assertEquals(Integer.valueOf(i), queue.poll());
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void interleavedOfferAndPoll() {
+        MpscQueue<String> queue = new MpscQueue<>();
+        queue.offer("a");
+        queue.offer("b");
+        assertEquals("a", queue.poll());
+        queue.offer("c");
+        assertEquals("b", queue.poll());
+        assertEquals("c", queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    // Каждый производитель кладёт свои числа по возрастанию: потребитель должен получить все и в том же порядке
+    @Test
+    void concurrentProducersKeepPerProducerOrder() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 200_000;
+        MpscQueue<long[]> queue = new MpscQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    queue.offer(new long[]{producer, i});
+                }
+            });
+            threads[p].start();
+        }
+        start.countDown();
+        int[] next = new int[producers];
+        long received = 0;
+        while (received < (long) producers * perProducer) {
+            long[] item = queue.poll();
+            if (item == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            int producer = (int) item[0];
+            assertEquals(next[producer], item[1]);
+            next[producer]++;
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(queue.isEmpty());
+        for (int count : next) {
+            assertEquals(perProducer, count);
+        }
+    }
+}
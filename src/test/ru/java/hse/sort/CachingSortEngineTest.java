@@ -0,0 +1,138 @@
+package ru.java.hse.sort;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingSortEngineTest {
+    private static final int LENGTH = 100;
+    // Как ENTRY_OVERHEAD плюс вход и результат
+    private static final long ENTRY_BYTES = 112 + 2L * Integer.BYTES * LENGTH;
+
+    private int baseSorts;
+    private final SortEngine base = data -> {
+        baseSorts++;
+        Arrays.sort(data);
+    };
+
+    private static int[] array(int seed) {
+        return new Random(seed).ints(LENGTH).toArray();
+    }
+
+    private static void assertSorts(SortEngine engine, int[] data) {
+        int[] expected = data.clone();
+        Arrays.sort(expected);
+        engine.sort(data);
+        assertArrayEquals(expected, data);
+    }
+
+    @Test
+    void repeatedArrayIsHit() {
+        CachingSortEngine engine = new CachingSortEngine(base, 10 * ENTRY_BYTES);
+        assertSorts(engine, array(1));
+        assertSorts(engine, array(1));
+        assertSorts(engine, array(1));
+        assertEquals(1, baseSorts);
+        assertEquals(2.0 / 3, engine.getHitRate(), 1e-9);
+        assertEquals(ENTRY_BYTES, engine.getBytes());
+    }
+
+    // Кэш хранит копии: вызывающий сортирует и меняет свой массив, сохранённые данные не меняются
+    @Test
+    void callerCannotCorruptEntry() {
+        CachingSortEngine engine = new CachingSortEngine(base, 10 * ENTRY_BYTES);
+        int[] data = array(2);
+        engine.sort(data);
+        Arrays.fill(data, 0);
+        assertSorts(engine, array(2));
+        assertEquals(1, baseSorts);
+    }
+
+    @Test
+    void differentArraysMiss() {
+        CachingSortEngine engine = new CachingSortEngine(base, 10 * ENTRY_BYTES);
+        assertSorts(engine, array(3));
+        assertSorts(engine, array(4));
+        assertSorts(engine, Arrays.copyOf(array(3), LENGTH - 1));
+        assertEquals(3, baseSorts);
+        assertEquals(0, engine.getHitRate(), 0);
+        assertEquals(0, new CachingSortEngine(base, ENTRY_BYTES).getHitRate(), 0);
+    }
+
+    // Вытесняется давно не использованный результат
+    @Test
+    void evictionByBytes() {
+        CachingSortEngine engine = new CachingSortEngine(base, 2 * ENTRY_BYTES + ENTRY_BYTES / 2);
+        assertSorts(engine, array(5));
+        assertSorts(engine, array(6));
+        assertSorts(engine, array(5));
+        assertSorts(engine, array(7));
+        assertEquals(1, engine.getEvictions());
+        assertEquals(2 * ENTRY_BYTES, engine.getBytes());
+        baseSorts = 0;
+        assertSorts(engine, array(5));
+        assertSorts(engine, array(7));
+        assertEquals(0, baseSorts);
+        assertSorts(engine, array(6));
+        assertEquals(1, baseSorts);
+        assertEquals(2, engine.getEvictions());
+    }
+
+    @Test
+    void arrayLargerThanCapacityIsNotStored() {
+        CachingSortEngine engine = new CachingSortEngine(base, ENTRY_BYTES - 1);
+        assertSorts(engine, array(8));
+        assertSorts(engine, array(8));
+        assertEquals(2, baseSorts);
+        assertEquals(0, engine.getBytes());
+        assertEquals(0, engine.getEvictions());
+    }
+
+    // При совпадении хешей чужой результат не отдаётся, а запись заменяется более свежей
+    @Test
+    void hashCollision() {
+        CachingSortEngine engine = new CachingSortEngine(base, 10 * ENTRY_BYTES, data -> 42);
+        assertSorts(engine, array(9));
+        assertSorts(engine, array(10));
+        assertEquals(2, baseSorts);
+        assertEquals(ENTRY_BYTES, engine.getBytes());
+        assertSorts(engine, array(10));
+        assertEquals(2, baseSorts);
+        assertSorts(engine, array(9));
+        assertEquals(3, baseSorts);
+        assertEquals(ENTRY_BYTES, engine.getBytes());
+        assertEquals(0, engine.getEvictions());
+    }
+
+    @Test
+    void concurrentSorts() throws InterruptedException {
+        CachingSortEngine engine = new CachingSortEngine(new JdkSortEngine(), 4 * ENTRY_BYTES);
+        Thread[] threads = new Thread[4];
+        boolean[] failed = new boolean[threads.length];
+        for (int t = 0; t < threads.length; t++) {
+            int index = t;
+            threads[t] = new Thread(() -> {
+                Random random = new Random(index);
+                for (int i = 0; i < 2000; i++) {
+                    int[] data = array(random.nextInt(8));
+                    int[] expected = data.clone();
+                    Arrays.sort(expected);
+                    engine.sort(data);
+                    failed[index] |= !Arrays.equals(expected, data);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (boolean f : failed) {
+            assertFalse(f);
+        }
+        assertTrue(engine.getBytes() <= 4 * ENTRY_BYTES);
+        assertTrue(engine.getHitRate() > 0);
+    }
+}
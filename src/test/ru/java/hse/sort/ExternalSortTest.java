@@ -0,0 +1,121 @@
+package ru.java.hse.sort;
+
+import org.junit.jupiter.api.Test;
+import ru.java.hse.buffer.MappedFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalSortTest {
+    // Как в сервере: длина ответа и id перед числами
+    private static final long OFFSET = 2L * Integer.BYTES;
+    private static final int HEADER = 0x01020304;
+    private static final int ID = 77;
+
+    private static MappedFile fileOf(int[] data, int segmentShift) throws IOException {
+        MappedFile file = MappedFile.create(OFFSET + (long) data.length * Integer.BYTES, segmentShift);
+        file.putInt(0, HEADER);
+        file.putInt(Integer.BYTES, ID);
+        file.putInts(OFFSET, data);
+        return file;
+    }
+
+    private static int[] contents(MappedFile file, int count) {
+        int[] data = new int[count];
+        file.getInts(OFFSET, data);
+        return data;
+    }
+
+    private static void assertSorted(int[] data, int runLength, SortEngine engine) throws IOException {
+        assertSorted(data, runLength, engine, MappedFile.DEFAULT_SEGMENT_SHIFT);
+    }
+
+    private static void assertSorted(int[] data, int runLength, SortEngine engine, int segmentShift)
+            throws IOException {
+        MappedFile file = fileOf(data, segmentShift);
+        MappedFile sorted = ExternalSort.sort(file, OFFSET, data.length, engine, runLength);
+        assertEquals(segmentShift, sorted.segmentShift());
+        if (data.length > runLength) {
+            assertNotSame(file, sorted);
+            file.close();
+        } else {
+            assertSame(file, sorted);
+        }
+        int[] expected = data.clone();
+        Arrays.sort(expected);
+        assertArrayEquals(expected, contents(sorted, data.length));
+        assertEquals(HEADER, sorted.getInt(0));
+        assertEquals(ID, sorted.getInt(Integer.BYTES));
+        sorted.close();
+    }
+
+    @Test
+    void singleRunIsSortedInPlace() throws IOException {
+        assertSorted(new Random(1).ints(1000).toArray(), 1000, new JdkSortEngine());
+    }
+
+    @Test
+    void emptyInput() throws IOException {
+        assertSorted(new int[0], 16, new JdkSortEngine());
+    }
+
+    @Test
+    void multipleRunsAreMerged() throws IOException {
+        Random random = new Random(2);
+        assertSorted(random.ints(10_003).toArray(), 1000, new JdkSortEngine());
+        // Длина кратна прогону, последний прогон полный
+        assertSorted(random.ints(8000).toArray(), 1000, new RadixSortEngine());
+    }
+
+    @Test
+    void shortLastRunAndDuplicates() throws IOException {
+        Random random = new Random(3);
+        assertSorted(random.ints(1001, -5, 5).toArray(), 100, new JdkSortEngine());
+        assertSorted(random.ints(5, -5, 5).toArray(), 2, new JdkSortEngine());
+    }
+
+    @Test
+    void manySmallRuns() throws IOException {
+        int[] data = new Random(4).ints(5000).toArray();
+        assertSorted(data, 1, new JdkSortEngine());
+        assertSorted(data, 7, new JdkSortEngine());
+    }
+
+    @Test
+    void reversedInput() throws IOException {
+        int[] data = new int[4096];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = data.length - i;
+        }
+        assertSorted(data, 512, new JdkSortEngine());
+    }
+
+    // Прогоны и заголовок пересекают границы сегментов
+    @Test
+    void manySegments() throws IOException {
+        Random random = new Random(5);
+        assertSorted(random.ints(3000).toArray(), 1000, new JdkSortEngine(), 12);
+        assertSorted(random.ints(3001).toArray(), 333, new JdkSortEngine(), 8);
+        assertSorted(random.ints(100).toArray(), 100, new JdkSortEngine(), 2);
+    }
+
+    @Test
+    void segmentBuffers() throws IOException {
+        MappedFile file = MappedFile.create(10_000, 12);
+        assertEquals(3, file.segmentCount());
+        ByteBuffer[] buffers = file.byteBuffers();
+        assertEquals(3, buffers.length);
+        assertEquals(4096, buffers[0].remaining());
+        assertEquals(10_000 - 2 * 4096, buffers[2].remaining());
+        file.putInt(4092, 1);
+        file.putInt(4096, 2);
+        assertEquals(1, Integer.reverseBytes(buffers[0].getInt(4092)));
+        assertEquals(2, Integer.reverseBytes(buffers[1].getInt(0)));
+        assertThrows(IllegalArgumentException.class, () -> MappedFile.create(16, 1));
+        file.close();
+    }
+}
@@ -0,0 +1,60 @@
+package ru.java.hse.sort;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RadixSortEngineTest {
+    private final RadixSortEngine engine = new RadixSortEngine();
+
+    private void assertSorts(int[] data) {
+        int[] expected = data.clone();
+        Arrays.sort(expected);
+        engine.sort(data);
+        assertArrayEquals(expected, data);
+    }
+
+    @Test
+    void emptyAndSingle() {
+        assertSorts(new int[0]);
+        assertSorts(new int[]{-7});
+    }
+
+    // Отрицательные числа должны идти перед положительными, хотя их старший байт больше
+    @Test
+    void signedValues() {
+        assertSorts(new int[]{1, -1, 0, Integer.MIN_VALUE, Integer.MAX_VALUE, -128, 127, 128, -129, 256, -256});
+    }
+
+    @Test
+    void boundaryValuesOnly() {
+        assertSorts(new int[]{Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, 0});
+    }
+
+    @Test
+    void randomValues() {
+        Random random = new Random(7);
+        for (int size : new int[]{2, 3, 255, 256, 257, 10_000}) {
+            assertSorts(random.ints(size).toArray());
+        }
+    }
+
+    @Test
+    void manyDuplicates() {
+        assertSorts(new Random(11).ints(10_000, -3, 3).toArray());
+    }
+
+    @Test
+    void alreadySortedAndReversed() {
+        int[] sorted = new Random(13).ints(1000).sorted().toArray();
+        assertSorts(sorted.clone());
+        int[] reversed = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            reversed[i] = sorted[sorted.length - 1 - i];
+        }
+        assertSorts(reversed);
+    }
+}
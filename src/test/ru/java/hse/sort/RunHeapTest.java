@@ -0,0 +1,76 @@
+package ru.java.hse.sort;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunHeapTest {
+    // Слияние прогонов тем же способом, что и в ExternalSort и SortedChunks
+    private static int[] merge(int[][] runs) {
+        RunHeap heap = new RunHeap(runs.length);
+        int[] positions = new int[runs.length];
+        int total = 0;
+        for (int run = 0; run < runs.length; run++) {
+            total += runs[run].length;
+            if (runs[run].length > 0) {
+                heap.add(run, runs[run][0]);
+            }
+        }
+        int[] merged = new int[total];
+        for (int i = 0; i < total; i++) {
+            assertFalse(heap.isEmpty());
+            int run = heap.topRun();
+            merged[i] = heap.topValue();
+            assertEquals(runs[run][positions[run]], merged[i]);
+            if (++positions[run] == runs[run].length) {
+                heap.removeTop();
+            } else {
+                heap.replaceTop(runs[run][positions[run]]);
+            }
+        }
+        assertTrue(heap.isEmpty());
+        return merged;
+    }
+
+    private static void assertMerges(int[][] runs) {
+        int[] expected = Arrays.stream(runs).flatMapToInt(Arrays::stream).sorted().toArray();
+        assertArrayEquals(expected, merge(runs));
+    }
+
+    @Test
+    void singleRun() {
+        assertMerges(new int[][]{{1, 2, 3}});
+    }
+
+    @Test
+    void emptyRunsAreSkipped() {
+        assertMerges(new int[][]{{}, {2, 4}, {}, {1, 3}});
+    }
+
+    @Test
+    void interleavedRuns() {
+        assertMerges(new int[][]{{1, 4, 7}, {2, 5, 8}, {3, 6, 9}});
+        assertMerges(new int[][]{{7, 8, 9}, {1, 2, 3}, {4, 5, 6}});
+    }
+
+    @Test
+    void equalHeadsAndBoundaries() {
+        assertMerges(new int[][]{{0, 0, 0}, {0, 0}, {Integer.MIN_VALUE, 0, Integer.MAX_VALUE},
+                {Integer.MIN_VALUE, Integer.MAX_VALUE}});
+    }
+
+    @Test
+    void randomRuns() {
+        Random random = new Random(1);
+        for (int count = 1; count <= 33; count++) {
+            int[][] runs = new int[count][];
+            for (int run = 0; run < count; run++) {
+                runs[run] = random.ints(random.nextInt(50), -100, 100).sorted().toArray();
+            }
+            assertMerges(runs);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ru.java.hse.sort;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedChunksTest {
+    private static List<int[]> chunks(int[] data, int chunkSize) {
+        List<int[]> chunks = new ArrayList<>();
+        SortedChunks sortedChunks = new SortedChunks(data, new JdkSortEngine(), chunkSize);
+        while (sortedChunks.hasNext()) {
+            chunks.add(sortedChunks.next());
+        }
+        assertThrows(NoSuchElementException.class, sortedChunks::next);
+        return chunks;
+    }
+
+    // Куски полного размера, кроме последнего, и вместе дают отсортированный массив
+    private static void assertChunks(int[] data, int chunkSize) {
+        int[] expected = data.clone();
+        Arrays.sort(expected);
+        List<int[]> chunks = chunks(data, chunkSize);
+        int position = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            int[] chunk = chunks.get(i);
+            if (i < chunks.size() - 1) {
+                assertEquals(chunkSize, chunk.length);
+            }
+            assertArrayEquals(Arrays.copyOfRange(expected, position, position + chunk.length), chunk);
+            position += chunk.length;
+        }
+        assertEquals(expected.length, position);
+        assertEquals((expected.length + chunkSize - 1) / chunkSize, chunks.size());
+    }
+
+    @Test
+    void emptyArrayYieldsOneEmptyChunk() {
+        List<int[]> chunks = chunks(new int[0], 10);
+        assertEquals(1, chunks.size());
+        assertEquals(0, chunks.get(0).length);
+    }
+
+    @Test
+    void singleBlock() {
+        assertChunks(new int[]{3, 1, 2}, 10);
+        assertChunks(new int[]{3, 1, 2}, 3);
+        assertChunks(new int[]{5}, 1);
+    }
+
+    @Test
+    void manyBlocks() {
+        Random random = new Random(1);
+        for (int chunkSize : new int[]{1, 2, 7, 64, 1000}) {
+            for (int length : new int[]{chunkSize + 1, 3 * chunkSize, 3 * chunkSize + 1, 5000}) {
+                assertChunks(random.ints(length).toArray(), chunkSize);
+                assertChunks(random.ints(length, 0, 3).toArray(), chunkSize);
+            }
+        }
+    }
+
+    @Test
+    void boundaryValues() {
+        assertChunks(new int[]{Integer.MAX_VALUE, 0, Integer.MIN_VALUE, -1, Integer.MAX_VALUE, Integer.MIN_VALUE}, 2);
+    }
+}
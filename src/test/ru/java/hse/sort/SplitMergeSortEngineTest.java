@@ -0,0 +1,135 @@
+package ru.java.hse.sort;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SplitMergeSortEngineTest {
+    private static final int THRESHOLD = 100;
+
+    // Базовый движок запоминает длины кусков, которые ему достались
+    private final List<Integer> runs = Collections.synchronizedList(new ArrayList<>());
+    private final SortEngine base = data -> {
+        runs.add(data.length);
+        Arrays.sort(data);
+    };
+
+    private void assertSorts(SortEngine engine, int[] data) {
+        int[] expected = data.clone();
+        Arrays.sort(expected);
+        engine.sort(data);
+        assertArrayEquals(expected, data);
+    }
+
+    private List<Integer> sortedRuns() {
+        List<Integer> lengths = new ArrayList<>(runs);
+        Collections.sort(lengths);
+        runs.clear();
+        return lengths;
+    }
+
+    @Test
+    void shortArraysAreNotSplit() {
+        SplitMergeSortEngine engine = new SplitMergeSortEngine(base, 4, THRESHOLD);
+        try {
+            assertSorts(engine, new Random(1).ints(THRESHOLD - 1).toArray());
+            assertEquals(List.of(THRESHOLD - 1), sortedRuns());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void singleThreadIsNotSplit() {
+        SplitMergeSortEngine engine = new SplitMergeSortEngine(base, 1, THRESHOLD);
+        assertSorts(engine, new Random(2).ints(1000).toArray());
+        assertEquals(List.of(1000), sortedRuns());
+    }
+
+    // Длина не делится на число кусков: куски отличаются не больше чем на один элемент
+    @Test
+    void unevenSplit() {
+        SplitMergeSortEngine engine = new SplitMergeSortEngine(base, 3, THRESHOLD);
+        try {
+            assertSorts(engine, new Random(3).ints(1000).toArray());
+            assertEquals(List.of(333, 333, 334), sortedRuns());
+            assertSorts(engine, new Random(4).ints(1001).toArray());
+            assertEquals(List.of(333, 334, 334), sortedRuns());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    // Кусок не короче половины порога, даже если потоков больше
+    @Test
+    void justAboveThreshold() {
+        SplitMergeSortEngine engine = new SplitMergeSortEngine(base, 8, THRESHOLD);
+        try {
+            assertSorts(engine, new Random(5).ints(THRESHOLD).toArray());
+            assertEquals(List.of(50, 50), sortedRuns());
+            assertSorts(engine, new Random(6).ints(THRESHOLD + 1).toArray());
+            assertEquals(List.of(50, 51), sortedRuns());
+            assertSorts(engine, new Random(7).ints(149).toArray());
+            assertEquals(List.of(74, 75), sortedRuns());
+            assertSorts(engine, new Random(8).ints(150).toArray());
+            assertEquals(List.of(50, 50, 50), sortedRuns());
+            assertSorts(engine, new Random(9).ints(10_000).toArray());
+            assertEquals(Collections.nCopies(8, 1250), sortedRuns());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    // Попарное слияние на входах, где куски перекрываются по-разному
+    @Test
+    void pairwiseMerge() {
+        Random random = new Random(10);
+        for (int parallelism = 2; parallelism <= 7; parallelism++) {
+            SplitMergeSortEngine engine = new SplitMergeSortEngine(base, parallelism, THRESHOLD);
+            try {
+                for (int size : new int[]{THRESHOLD, 257, 1000, 4099}) {
+                    assertSorts(engine, random.ints(size).toArray());
+                    assertSorts(engine, random.ints(size, 0, 4).toArray());
+                    int[] ascending = random.ints(size).sorted().toArray();
+                    assertSorts(engine, ascending.clone());
+                    int[] descending = new int[size];
+                    for (int i = 0; i < size; i++) {
+                        descending[i] = ascending[size - 1 - i];
+                    }
+                    assertSorts(engine, descending);
+                }
+            } finally {
+                engine.shutdown();
+            }
+        }
+    }
+
+    // После остановки пул создаётся заново, а shutdown доходит до базового движка
+    @Test
+    void shutdownStopsPool() {
+        boolean[] baseStopped = {false};
+        SortEngine stoppable = new SortEngine() {
+            @Override
+            public void sort(int[] data) {
+                Arrays.sort(data);
+            }
+
+            @Override
+            public void shutdown() {
+                baseStopped[0] = true;
+            }
+        };
+        SplitMergeSortEngine engine = new SplitMergeSortEngine(stoppable, 2, THRESHOLD);
+        assertSorts(engine, new Random(11).ints(1000).toArray());
+        engine.shutdown();
+        assertTrue(baseStopped[0]);
+        assertSorts(engine, new Random(12).ints(1000).toArray());
+        engine.shutdown();
+    }
+}